@@ -18,4 +18,20 @@
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+
+# User travels as a Serializable extra, including inside notification PendingIntents that can
+# outlive an app update, so its class and field names must stay stable.
+-keep class com.example.sigma_chat_v2.models.User {
+    <fields>;
+}
+
+# Keep stack traces readable in crash reports; map them back with mapping.txt.
+-keepattributes SourceFile,LineNumberTable
+-renamesourcefileattribute SourceFile
+
+# Retrofit 2.9 does not ship these rules. R8 full mode would otherwise strip the generic signature of
+# ApiService's Call<String>, and Retrofit fails with "Call return type must be parameterized".
+-keepattributes Signature
+-keep,allowobfuscation,allowshrinking interface retrofit2.Call
+-keep,allowobfuscation,allowshrinking class retrofit2.Response
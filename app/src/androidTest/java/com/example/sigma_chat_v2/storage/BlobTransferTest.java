@@ -0,0 +1,220 @@
+package com.example.sigma_chat_v2.storage;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Chunked, resumable transfers against the local-file store, and against an in-memory stand-in for
+// the Firestore store that keeps the same manifest; the real one needs the Firestore emulator.
+@RunWith(AndroidJUnit4.class)
+public class BlobTransferTest {
+
+    private static final int CHUNK_SIZE = 1024;
+    private static final String BLOB_ID = "blob";
+
+    private File directory;
+    private LocalFileBlobStore store;
+    private byte[] content;
+
+    @Before
+    public void setUp() {
+        directory = new File(InstrumentationRegistry.getInstrumentation().getTargetContext().getCacheDir(),
+                "blob_transfer_test");
+        store = new LocalFileBlobStore(directory, CHUNK_SIZE);
+        content = new byte[CHUNK_SIZE * 5 + 123];
+        new Random(7).nextBytes(content);
+    }
+
+    @After
+    public void tearDown() {
+        store.delete(BLOB_ID);
+        directory.delete();
+    }
+
+    @Test
+    public void copiesInChunks() throws IOException {
+        long length = BlobTransfer.copy(new ByteArrayInputStream(content), BLOB_ID, store, null);
+
+        assertEquals(content.length, length);
+        assertTrue(store.isComplete(BLOB_ID));
+        assertArrayEquals(content, read(store.open(BLOB_ID)));
+    }
+
+    @Test
+    public void resumesAfterInterruption() throws IOException {
+        try {
+            BlobTransfer.copy(new FailingInputStream(content, CHUNK_SIZE * 3 + 10), BLOB_ID, store, null);
+            fail("The source should have failed");
+        } catch (IOException expected) {
+            // Interrupted inside the fourth chunk.
+        }
+        assertFalse(store.isComplete(BLOB_ID));
+        assertEquals(CHUNK_SIZE * 3, store.getStoredLength(BLOB_ID));
+
+        CountingInputStream resumed = new CountingInputStream(content);
+        BlobTransfer.copy(resumed, BLOB_ID, store, null);
+
+        assertEquals(content.length - CHUNK_SIZE * 3, resumed.read);
+        assertArrayEquals(content, read(store.open(BLOB_ID)));
+    }
+
+    @Test
+    public void resumesRemoteAfterLastChunk() throws IOException {
+        FakeRemoteBlobStore remote = new FakeRemoteBlobStore(CHUNK_SIZE);
+        remote.failNextComplete = true;
+        try {
+            BlobTransfer.copy(new ByteArrayInputStream(content), BLOB_ID, remote, null);
+            fail("complete() should have failed");
+        } catch (IOException expected) {
+            // Every chunk stored, the short last one included, but the blob was never marked
+            // complete.
+        }
+        assertFalse(remote.isComplete(BLOB_ID));
+        assertEquals(CHUNK_SIZE * 5, remote.getStoredLength(BLOB_ID));
+
+        CountingInputStream resumed = new CountingInputStream(content);
+        assertEquals(content.length, BlobTransfer.copy(resumed, BLOB_ID, remote, null));
+
+        assertEquals(content.length - CHUNK_SIZE * 5, resumed.read);
+        assertTrue(remote.isComplete(BLOB_ID));
+        assertArrayEquals(content, read(remote.open(BLOB_ID)));
+    }
+
+    private static byte[] read(InputStream inputStream) throws IOException {
+        try (InputStream stream = inputStream) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[700];
+            int read;
+            while ((read = stream.read(buffer)) > 0) {
+                outputStream.write(buffer, 0, read);
+            }
+            return outputStream.toByteArray();
+        }
+    }
+
+    private static class FailingInputStream extends InputStream {
+        private final ByteArrayInputStream source;
+        private final int failAt;
+        private int position = 0;
+
+        FailingInputStream(byte[] content, int failAt) {
+            this.source = new ByteArrayInputStream(content);
+            this.failAt = failAt;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (position >= failAt) {
+                throw new IOException("Connection lost");
+            }
+            int count = source.read(buffer, offset, Math.min(length, failAt - position));
+            position += Math.max(count, 0);
+            return count;
+        }
+    }
+
+    // Chunk documents plus a manifest counted the way FirestoreChunkBlobStore counts it.
+    private static class FakeRemoteBlobStore implements BlobStore {
+        private final int chunkSize;
+        private final Map<Integer, byte[]> chunks = new HashMap<>();
+        private int storedChunks = 0;
+        private long length = -1;
+        boolean failNextComplete = false;
+
+        FakeRemoteBlobStore(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        @Override
+        public long getStoredLength(String blobId) {
+            return length >= 0 ? length : (long) storedChunks * chunkSize;
+        }
+
+        @Override
+        public void writeChunk(String blobId, int index, byte[] buffer, int length) {
+            byte[] chunk = new byte[length];
+            System.arraycopy(buffer, 0, chunk, 0, length);
+            chunks.put(index, chunk);
+            storedChunks = FirestoreChunkBlobStore.storedChunksAfter(index, length, chunkSize);
+        }
+
+        @Override
+        public void complete(String blobId, long length) throws IOException {
+            if (failNextComplete) {
+                failNextComplete = false;
+                throw new IOException("Connection lost");
+            }
+            this.length = length;
+        }
+
+        @Override
+        public boolean isComplete(String blobId) {
+            return length >= 0;
+        }
+
+        @Override
+        public InputStream open(String blobId) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            for (int index = 0; (long) index * chunkSize < length; index++) {
+                byte[] chunk = chunks.get(index);
+                outputStream.write(chunk, 0, chunk.length);
+            }
+            return new ByteArrayInputStream(outputStream.toByteArray());
+        }
+
+        @Override
+        public void delete(String blobId) {
+            chunks.clear();
+            storedChunks = 0;
+            length = -1;
+        }
+    }
+
+    // Counts bytes actually read, as opposed to skipped.
+    private static class CountingInputStream extends ByteArrayInputStream {
+        int read = 0;
+
+        CountingInputStream(byte[] content) {
+            super(content);
+        }
+
+        @Override
+        public synchronized int read(byte[] buffer, int offset, int length) {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                read += count;
+            }
+            return count;
+        }
+    }
+}
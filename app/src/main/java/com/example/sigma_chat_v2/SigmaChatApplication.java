@@ -0,0 +1,29 @@
+package com.example.sigma_chat_v2;
+
+import android.app.Application;
+
+import com.example.sigma_chat_v2.firebase.ListenerRegistry;
+import com.example.sigma_chat_v2.firebase.PresenceManager;
+import com.example.sigma_chat_v2.utilities.NotificationEngine;
+import com.example.sigma_chat_v2.utilities.StartupTracer;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+public class SigmaChatApplication extends Application {
+
+    private static final int FIRESTORE_EMULATOR_PORT = 8080;
+
+    @Override
+    public void onCreate() {
+        StartupTracer.onApplicationCreate();
+        StartupTracer.beginSection("SigmaChatApplication.onCreate");
+        super.onCreate();
+        if (!BuildConfig.FIRESTORE_EMULATOR_HOST.isEmpty()) {
+            // Must happen before anything touches Firestore.
+            FirebaseFirestore.getInstance().useEmulator(BuildConfig.FIRESTORE_EMULATOR_HOST, FIRESTORE_EMULATOR_PORT);
+        }
+        NotificationEngine.getInstance(this).createChannels();
+        PresenceManager.getInstance(this).start();
+        ListenerRegistry.getInstance().start();
+        StartupTracer.endSection();
+    }
+}
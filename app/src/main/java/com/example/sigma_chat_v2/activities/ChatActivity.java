@@ -1,73 +1,89 @@
 package com.example.sigma_chat_v2.activities;
 
+import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.ImageDecoder;
 import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.os.Bundle;
-import android.util.Base64;
 import android.util.Log;
 import android.view.View;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.sigma_chat_v2.R;
 import com.example.sigma_chat_v2.adapters.ChatAdapter;
+import com.example.sigma_chat_v2.database.MessageOutbox;
 import com.example.sigma_chat_v2.databinding.ActivityChatBinding;
+import com.example.sigma_chat_v2.firebase.ListenerRegistry;
+import com.example.sigma_chat_v2.firebase.MessagePager;
+import com.example.sigma_chat_v2.firebase.PresenceManager;
 import com.example.sigma_chat_v2.models.ChatMessage;
+import com.example.sigma_chat_v2.models.ImageAttachment;
 import com.example.sigma_chat_v2.models.User;
-import com.example.sigma_chat_v2.network.ApiClient;
-import com.example.sigma_chat_v2.network.ApiService;
+import com.example.sigma_chat_v2.network.PushDispatcher;
+import com.example.sigma_chat_v2.repositories.MessageWindow;
+import com.example.sigma_chat_v2.storage.MessageImageStore;
+import com.example.sigma_chat_v2.utilities.AvatarCache;
+import com.example.sigma_chat_v2.utilities.AvatarVariant;
 import com.example.sigma_chat_v2.utilities.Constants;
+import com.example.sigma_chat_v2.utilities.ConversationId;
+import com.example.sigma_chat_v2.utilities.ImagePipeline;
+import com.example.sigma_chat_v2.utilities.NotificationEngine;
 import com.example.sigma_chat_v2.utilities.PreferenceManager;
-import com.google.android.gms.tasks.OnCompleteListener;
+import com.example.sigma_chat_v2.utilities.SortedMessageList;
+import com.example.sigma_chat_v2.utilities.StartupTracer;
+import com.example.sigma_chat_v2.viewmodels.ChatViewModel;
 import com.google.android.material.internal.NavigationMenu;
-import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentReference;
-import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QuerySnapshot;
 
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
-import com.google.firebase.firestore.EventListener;
-
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
-import java.util.Objects;
-
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ChatActivity extends BaseActivity {
 
     private ActivityChatBinding binding;
     private User receiverUser;
     private List<ChatMessage> chatMessages;
+    private SortedMessageList sortedMessages;
     private ChatAdapter chatAdapter;
     private PreferenceManager preferenceManager;
     private FirebaseFirestore database;
     private String conversionId = null;
+    private boolean conversionExists = false;
+    private MessageWindow messageWindow;
+    private MessagePager messagePager;
 
     private Boolean isReceiverAvailable = false;
+    private Long receiverAvailability;
+    private Date receiverLastSeen;
+    private static final int PREFETCH_DISTANCE = 5;
+    private static final String SECTION_OPEN = "ChatActivity.open";
+    private final ExecutorService imageExecutor = Executors.newSingleThreadExecutor();
 
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        StartupTracer.beginSection("ChatActivity.onCreate");
+        // Ends once the first messages are on screen; what the chat-open benchmark measures.
+        StartupTracer.beginAsyncSection(SECTION_OPEN, System.identityHashCode(this));
         super.onCreate(savedInstanceState);
         binding = ActivityChatBinding.inflate(getLayoutInflater());
         EdgeToEdge.enable(this);
@@ -77,31 +93,62 @@ public class ChatActivity extends BaseActivity {
         if (receiverUser == null) {
 
             finish();
+            StartupTracer.endAsyncSection(SECTION_OPEN, System.identityHashCode(this));
+            StartupTracer.endSection();
             return;
         }
 
         init();
         setListeners();
         listenMessages();
+        listenAvailabilityOfReceiver();
+        if (savedInstanceState == null && getIntent().hasExtra(Constants.KEY_MESSAGE_ID)) {
+            messagePager.jumpTo(
+                    getIntent().getStringExtra(Constants.KEY_MESSAGE_ID),
+                    getIntent().getLongExtra(Constants.KEY_TIMESTAMP, 0)
+            );
+        }
 
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
             Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
             v.setPadding(systemBars.left, systemBars.top, systemBars.right, systemBars.bottom);
             return insets;
         });
+        StartupTracer.endSection();
     }
 
 
     private void init() {
         preferenceManager = new PreferenceManager(getApplicationContext());
-        chatMessages = new ArrayList<>();
+        database = FirebaseFirestore.getInstance();
+        conversionId = ConversationId.of(preferenceManager.getString(Constants.KEY_USER_ID), receiverUser.id);
+        messageWindow = new ViewModelProvider(this).get(ChatViewModel.class).open(conversionId);
+        chatMessages = messageWindow.getMessages();
+        sortedMessages = messageWindow.getSortedMessages();
+        messagePager = messageWindow.getPager();
         chatAdapter = new ChatAdapter(
                 chatMessages,
-                getBitmapFromEncodeString(receiverUser.image),
-                preferenceManager.getString(Constants.KEY_USER_ID)
+                AvatarCache.getInstance(getApplicationContext())
+                        .getCached(receiverUser.id, receiverUser.imageHash, receiverUser.image, AvatarVariant.THUMBNAIL)
         );
         binding.chatRecyclerView.setAdapter(chatAdapter);
-        database = FirebaseFirestore.getInstance();
+        messageWindow.attach(new AdapterListUpdateCallback(chatAdapter), pagerCallback);
+        if (messageWindow.isHistoryLoaded()) {
+            // Reopened or recreated: the window is already populated.
+            pagerCallback.onHistoryLoaded();
+            binding.chatRecyclerView.scrollToPosition(Math.max(0, chatMessages.size() - 1));
+        }
+        loadReceiverImage();
+    }
+
+    private void loadReceiverImage() {
+        AvatarCache.getInstance(getApplicationContext()).load(receiverUser.id, receiverUser.imageHash, receiverUser.image,
+                AvatarVariant.THUMBNAIL, bitmap -> {
+            if (bitmap != null) {
+                chatAdapter.setReceiverProfileImage(bitmap);
+                chatAdapter.notifyItemRangeChanged(0, chatMessages.size());
+            }
+        });
     }
 
     private void sendMessage() {
@@ -109,193 +156,237 @@ public class ChatActivity extends BaseActivity {
         if (messageText.isEmpty()) {
             return; // Jangan kirim pesan kosong
         }
+        binding.inputMessage.setText(null);
+        messagePager.jumpToLatest();
+
+        String senderId = preferenceManager.getString(Constants.KEY_USER_ID);
+        ChatMessage chatMessage = new ChatMessage(
+                database.collection(Constants.KEY_COLLECTION_CHAT).document().getId(),
+                senderId,
+                receiverUser.id,
+                messageText,
+                System.currentTimeMillis(),
+                senderId
+        );
+        sortedMessages.insert(chatMessage);
+        MessageOutbox.getInstance(getApplicationContext()).enqueue(chatMessage, conversionFieldsIfNew());
+        notifyReceiver(messageText);
+    }
 
-        HashMap<String, Object> message = new HashMap<>();
-        message.put(Constants.KEY_SENDER_ID, preferenceManager.getString(Constants.KEY_USER_ID));
-        message.put(Constants.KEY_RECEIVER_ID, receiverUser.id);
-        message.put(Constants.KEY_MESSAGE, messageText);
-        message.put(Constants.KEY_TIMESTAMP, new Date());
-
-        database.collection(Constants.KEY_COLLECTION_CHAT).add(message)
-                .addOnSuccessListener(documentReference -> {
-                    binding.inputMessage.setText(""); // Kosongkan input setelah pesan dikirim
-                });
+    // The message id doubles as the blob id of its photo. The decoded bitmap is handed to the image
+    // store, so the new row shows it at once while the original streams up in the background.
+    private void sendImage(Uri imageUri, Bitmap bitmap, String preview) {
+        messagePager.jumpToLatest();
+        String senderId = preferenceManager.getString(Constants.KEY_USER_ID);
+        String messageId = database.collection(Constants.KEY_COLLECTION_CHAT).document().getId();
+        MessageImageStore.getInstance(getApplicationContext()).putDecoded(messageId, bitmap);
+        ChatMessage chatMessage = new ChatMessage(
+                messageId,
+                senderId,
+                receiverUser.id,
+                "",
+                System.currentTimeMillis(),
+                senderId,
+                new ImageAttachment(messageId, preview, bitmap.getWidth(), bitmap.getHeight())
+        );
+        sortedMessages.insert(chatMessage);
+        MessageOutbox.getInstance(getApplicationContext()).enqueue(chatMessage, conversionFieldsIfNew(), imageUri);
+        notifyReceiver(Constants.IMAGE_MESSAGE_SUMMARY);
+    }
 
-        if(conversionId != null){
-            updateConversion(binding.inputMessage.getText().toString());
-        }else {
-            HashMap<String, Object> conversion = new HashMap<>();
-            conversion.put(Constants.KEY_SENDER_ID, preferenceManager.getString(Constants.KEY_USER_ID));
-            conversion.put(Constants.KEY_SENDER_NAME, preferenceManager.getString(Constants.KEY_NAME));
-            conversion.put(Constants.KEY_RECEIVER_ID, receiverUser.id);
-            conversion.put(Constants.KEY_RECEIVER_NAME, receiverUser.name);
+    // The fields that create the conversation document, or null once it exists.
+    private HashMap<String, Object> conversionFieldsIfNew() {
+        if (conversionExists) {
+            return null;
+        }
+        HashMap<String, Object> conversion = new HashMap<>();
+        conversion.put(Constants.KEY_SENDER_ID, preferenceManager.getString(Constants.KEY_USER_ID));
+        conversion.put(Constants.KEY_SENDER_NAME, preferenceManager.getString(Constants.KEY_NAME));
+        conversion.put(Constants.KEY_RECEIVER_ID, receiverUser.id);
+        conversion.put(Constants.KEY_RECEIVER_NAME, receiverUser.name);
+        conversion.put(Constants.KEY_SENDER_IMAGE_HASH, preferenceManager.getString(Constants.KEY_IMAGE_HASH));
+        if (receiverUser.imageHash != null) {
+            conversion.put(Constants.KEY_RECEIVER_IMAGE_HASH, receiverUser.imageHash);
+        } else {
             conversion.put(Constants.KEY_RECEIVER_IMAGE, receiverUser.image);
-            conversion.put(Constants.KEY_LAST_MESSAGE, binding.inputMessage.getText().toString());
-            conversion.put(Constants.KEY_TIMESTAMP, new Date());
-            addConversion(conversion);
         }
-        if (!isReceiverAvailable) {
-            try {
+        conversionExists = true;
+        return conversion;
+    }
 
-                if (receiverUser.token == null || receiverUser.token.isEmpty()) {
-                    showToast("Token penerima tidak tersedia");
+    private void notifyReceiver(String messageText) {
+        if (isReceiverAvailable) {
+            return;
+        }
+        if (receiverUser.token == null || receiverUser.token.isEmpty()) {
+            showToast("Token penerima tidak tersedia");
+            return;
+        }
+        PushDispatcher.getInstance().dispatch(
+                receiverUser.token,
+                preferenceManager.getString(Constants.KEY_USER_ID),
+                preferenceManager.getString(Constants.KEY_NAME),
+                preferenceManager.getString(Constants.KEY_FCM_TOKEN),
+                messageText,
+                pushListener
+        );
+    }
+
+    // Opened as a document so the read grant can be persisted: the upload resumes after a restart.
+    private final ActivityResultLauncher<String[]> pickImage = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(),
+            imageUri -> {
+                if (imageUri == null) {
                     return;
                 }
-                Log.d("SendNotification", "Token: " + receiverUser.token);
-                Log.d("SendNotification", "SenderID: " + preferenceManager.getString(Constants.KEY_USER_ID));
-                Log.d("SendNotification", "Message: " + binding.inputMessage.getText().toString());
+                try {
+                    getContentResolver().takePersistableUriPermission(imageUri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                } catch (SecurityException e) {
+                    Log.w("ChatActivity", "Read grant for " + imageUri + " is not persistable", e);
+                }
+                ImagePipeline.getInstance().decode(getContentResolver(), imageUri, MessageImageStore.DISPLAY_SIZE, bitmap -> {
+                    if (bitmap == null) {
+                        showToast("Gambar tidak bisa dibuka");
+                        return;
+                    }
+                    imageExecutor.execute(() -> {
+                        String preview = MessageImageStore.encodePreview(bitmap);
+                        runOnUiThread(() -> {
+                            if (!isDestroyed()) {
+                                sendImage(imageUri, bitmap, preview);
+                            }
+                        });
+                    });
+                });
+            }
+    );
 
+    private final PushListener pushListener = new PushListener(this);
 
-                JSONArray tokens = new JSONArray();
-                tokens.put(receiverUser.token);
+    // PushDispatcher keeps its listener through the debounce and any retries, well past this
+    // screen, so it only reaches the activity until onDestroy detaches it.
+    private static class PushListener implements PushDispatcher.Listener {
+        private volatile ChatActivity activity;
 
-                JSONObject data = new JSONObject();
-                data.put(Constants.KEY_USER_ID, preferenceManager.getString(Constants.KEY_USER_ID));
-                data.put(Constants.KEY_NAME, preferenceManager.getString(Constants.KEY_NAME));
-                data.put(Constants.KEY_FCM_TOKEN, preferenceManager.getString(Constants.KEY_FCM_TOKEN));
-                data.put(Constants.KEY_MESSAGE, binding.inputMessage.getText().toString());
+        PushListener(ChatActivity activity) {
+            this.activity = activity;
+        }
+
+        void detach() {
+            activity = null;
+        }
 
-                JSONObject body = new JSONObject();
-                body.put(Constants.REMOTE_MSG_DATA, data);
-                body.put(Constants.REMOTE_MSG_REGISTRATION_IDS, tokens);
+        @Override
+        public void onDelivered(String recipientToken, int messageCount) {
+            showToast("Notifikasi berhasil dikirim");
+        }
+
+        @Override
+        public void onFailed(String recipientToken, String error) {
+            Log.e("SendNotification", error);
+            showToast(error);
+        }
 
-                sendNotification(body.toString());
-            }catch (Exception exception){
-                showToast(exception.getMessage());
+        private void showToast(String message) {
+            ChatActivity chatActivity = activity;
+            if (chatActivity != null) {
+                chatActivity.runOnUiThread(() -> {
+                    if (!chatActivity.isDestroyed()) {
+                        chatActivity.showToast(message);
+                    }
+                });
             }
         }
-        binding.inputMessage.setText(null);
     }
 
     private void showToast(String message){
         Toast.makeText(getApplicationContext(), message, Toast.LENGTH_SHORT).show();
     }
-    private void sendNotification(String messageBody){
-        ApiClient.getClient().create(ApiService.class).sendMessage(
-                Constants.getRemoteMsgHeaders(),
-                messageBody
-        ).enqueue(new Callback<String>() {
-            @Override
-            public void onResponse(@NonNull Call<String> call, @NonNull Response<String> response) {
-                if (response.isSuccessful()) {
-                    try {
-                        if (response.body() != null) {
-                            JSONObject responseJson = new JSONObject(response.body());
-                            JSONArray results = responseJson.getJSONArray("results");
-                            if (responseJson.getInt("failure") == 1) {
-                                JSONObject error = (JSONObject) results.get(0);
-                                showToast(error.getString("error"));
-                                return;
-                            }
-                        }
-                    } catch (JSONException e) {
-                        e.printStackTrace();
-                    }
-                    showToast("Notifikasi berhasil dikirim");
-                } try {
-                    String errorBody = response.errorBody() != null ? response.errorBody().string() : "No body";
-                    Log.e("SendNotification", "Error: " + response.code() + " - " + errorBody);
-                    showToast("Error: " + response.code());
-                } catch (Exception e) {
-                    e.printStackTrace();
+    private void listenAvailabilityOfReceiver(){
+        DocumentReference receiverDocument =
+                database.collection(Constants.KEY_COLLECTION_USERS).document(receiverUser.id);
+        ListenerRegistry.getInstance().listen(ChatActivity.this, receiverDocument, (value, reset) -> {
+            receiverAvailability = value.getLong(Constants.KEY_AVAILABILITY);
+            receiverLastSeen = value.getDate(Constants.KEY_LAST_SEEN);
+            receiverUser.token = value.getString(Constants.KEY_FCM_TOKEN);
+            if(receiverUser.imageHash == null && receiverUser.image == null){
+                receiverUser.imageHash = value.getString(Constants.KEY_IMAGE_HASH);
+                if (receiverUser.imageHash == null) {
+                    receiverUser.image = value.getString(Constants.KEY_IMAGE);
                 }
-
-            }
-
-            @Override
-            public void onFailure(@NonNull Call<String> call, @NonNull Throwable t) {
-                showToast(t.getMessage());
+                loadReceiverImage();
             }
+            updateAvailability();
         });
     }
 
-    private void listenAvailabilityOfReceiver(){
-        database.collection(Constants.KEY_COLLECTION_USERS).document(
-                receiverUser.id
-        ).addSnapshotListener(ChatActivity.this, ((value, error) -> {
-            if(error != null){
-                return;
+    // Re-evaluated when the receiver's heartbeat would be overdue, since a killed process never
+    // writes offline.
+    private final Runnable updateAvailabilityRunnable = this::updateAvailability;
+
+    private void updateAvailability() {
+        isReceiverAvailable = PresenceManager.isOnline(receiverAvailability, receiverLastSeen);
+        binding.textAvailability.removeCallbacks(updateAvailabilityRunnable);
+        if(isReceiverAvailable) {
+            binding.textAvailability.setVisibility(View.VISIBLE);
+            if (receiverLastSeen != null) {
+                long staleAt = receiverLastSeen.getTime() + PresenceManager.STALE_AFTER_MS;
+                binding.textAvailability.postDelayed(updateAvailabilityRunnable,
+                        Math.max(0, staleAt - System.currentTimeMillis()));
             }
-            if(value != null){
-                if(value.getLong(Constants.KEY_AVAILABILITY) != null){
-                   int availability = Objects.requireNonNull(
-                           value.getLong(Constants.KEY_AVAILABILITY)
-                   ).intValue();
-                   isReceiverAvailable = availability == 1;
-                }
-                receiverUser.token = value.getString(Constants.KEY_FCM_TOKEN);
-                if(receiverUser.image == null){
-                    receiverUser.image = value.getString(Constants.KEY_IMAGE);
-                    chatAdapter.setReceiverProfileImage(getBitmapFromEncodeString(receiverUser.image));
-                    chatAdapter.notifyItemRangeChanged(0, chatMessages.size());
-                }
-            }
-            if(isReceiverAvailable) {
-                binding.textAvailability.setVisibility(View.VISIBLE);
-            }else{
-                binding.textAvailability.setVisibility(View.GONE);
-            }
-        }));
+        }else{
+            binding.textAvailability.setVisibility(View.GONE);
+        }
     }
 
 
     private void listenMessages() {
-        database.collection(Constants.KEY_COLLECTION_CHAT)
-                .whereEqualTo(Constants.KEY_SENDER_ID, preferenceManager.getString(Constants.KEY_USER_ID))
-                .whereEqualTo(Constants.KEY_RECEIVER_ID, receiverUser.id)
-                .addSnapshotListener(eventListener);
-        database.collection(Constants.KEY_COLLECTION_CHAT)
-                .whereEqualTo(Constants.KEY_SENDER_ID, receiverUser.id)
-                .whereEqualTo(Constants.KEY_RECEIVER_ID, preferenceManager.getString(Constants.KEY_USER_ID))
-                .addSnapshotListener(eventListener);
-    }
-
-    private final EventListener<QuerySnapshot> eventListener = (value, error) -> {
-        if(error != null) {
-            return ;
-        }
-        if(value != null) {
-            int count = chatMessages.size();
-            for (DocumentChange documentChange : value.getDocumentChanges()) {
-                if(documentChange.getType() == DocumentChange.Type.ADDED) {
-                    ChatMessage chatMessage = new ChatMessage();
-                    chatMessage.senderId = documentChange.getDocument().getString(Constants.KEY_SENDER_ID);
-                    chatMessage.receiverId = documentChange.getDocument().getString(Constants.KEY_RECEIVER_ID);
-                    chatMessage.message = documentChange.getDocument().getString(Constants.KEY_MESSAGE);
-                    chatMessage.dateTime = getReadableDateTime(documentChange.getDocument().getDate(Constants.KEY_TIMESTAMP));
-                    chatMessage.dateObject = documentChange.getDocument().getDate(Constants.KEY_TIMESTAMP);
-                    chatMessages.add(chatMessage);
+        binding.chatRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager == null) {
+                    return;
+                }
+                if (dy < 0 && layoutManager.findFirstVisibleItemPosition() <= PREFETCH_DISTANCE) {
+                    messagePager.loadOlder();
+                } else if (dy > 0 && layoutManager.findLastVisibleItemPosition()
+                        >= chatMessages.size() - 1 - PREFETCH_DISTANCE) {
+                    messagePager.loadNewer();
                 }
             }
-            Collections.sort(chatMessages, (obj1, obj2) -> obj1.dateObject.compareTo(obj2.dateObject));
-            if (count == 0) {
-                chatAdapter.notifyDataSetChanged();
-            }else {
-                chatAdapter.notifyItemRangeInserted(chatMessages.size(), chatMessages.size());
-                binding.chatRecyclerView.smoothScrollToPosition(chatMessages.size() - 1);
-            }
+        });
+    }
+
+    private final MessagePager.Callback pagerCallback = new MessagePager.Callback() {
+        @Override
+        public void onHistoryLoaded() {
             binding.chatRecyclerView.setVisibility(View.VISIBLE);
+            binding.progressBar.setVisibility(View.GONE);
+            StartupTracer.endAsyncSection(SECTION_OPEN, System.identityHashCode(ChatActivity.this));
+            if(!chatMessages.isEmpty()){
+                conversionExists = true;
+            }
         }
-        binding.progressBar.setVisibility(View.GONE);
-        if(conversionId == null){
-            checkForConversion();
-        }
-    };
 
-    private Bitmap getBitmapFromEncodeString(String encodedImage) {
-        if (encodedImage == null || encodedImage.isEmpty()) {
-            return null;
-        }
-        try {
-            byte[] bytes = Base64.decode(encodedImage, Base64.DEFAULT);
-            return BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
+        @Override
+        public void onLiveMessageAdded(int position) {
+            if (position == chatMessages.size() - 1) {
+                binding.chatRecyclerView.smoothScrollToPosition(position);
+            }
         }
-    }
-
 
+        @Override
+        public void onJumpedTo(int position) {
+            if (position < 0) {
+                return;
+            }
+            LinearLayoutManager layoutManager = (LinearLayoutManager) binding.chatRecyclerView.getLayoutManager();
+            if (layoutManager != null) {
+                layoutManager.scrollToPositionWithOffset(position, binding.chatRecyclerView.getHeight() / 3);
+            }
+        }
+    };
 
     private void loadReceiverDetails() {
         receiverUser = (User) getIntent().getSerializableExtra(Constants.KEY_USER);
@@ -305,57 +396,28 @@ public class ChatActivity extends BaseActivity {
     private void setListeners() {
         binding.imageBack.setOnClickListener(v -> getOnBackPressedDispatcher().onBackPressed());
         binding.layoutSend.setOnClickListener(v -> sendMessage());
+        binding.imageAttach.setOnClickListener(v -> pickImage.launch(new String[]{"image/*"}));
     }
-    private String getReadableDateTime(Date date) {
-        return new SimpleDateFormat("MMMM dd, yyyy - hh:mm", Locale.getDefault()).format(date);
-    }
-
-    private void addConversion(HashMap<String, Object> conversion){
-        database.collection(Constants.KEY_COLLECTION_CONVERSATIONS)
-                .add(conversion)
-                .addOnSuccessListener(documentReference -> conversionId = documentReference.getId());
-    }
-
-    private void updateConversion(String message){
-        DocumentReference documentReference =
-                database.collection(Constants.KEY_COLLECTION_CONVERSATIONS).document(conversionId);
-        documentReference.update(
-                Constants.KEY_LAST_MESSAGE, message,
-                Constants.KEY_TIMESTAMP, new Date()
-        );
-    }
-
-    private void checkForConversion(){
-        if(chatMessages.size() != 0){
-            checkForConversionRemotely(
-                    preferenceManager.getString(Constants.KEY_USER_ID),
-                    receiverUser.id
-            );
-            checkForConversionRemotely(
-                    receiverUser.id,
-                    preferenceManager.getString(Constants.KEY_USER_ID)
-            );
-        }
+    @Override
+    protected void onResume() {
+        super.onResume();
+        NotificationEngine.getInstance(getApplicationContext()).setVisibleSender(receiverUser.id);
     }
 
-    private void checkForConversionRemotely(String senderId, String receiverId){
-        database.collection(Constants.KEY_COLLECTION_CONVERSATIONS)
-                .whereEqualTo(Constants.KEY_SENDER_ID, senderId)
-                .whereEqualTo(Constants.KEY_RECEIVER_ID, receiverId)
-                .get()
-                .addOnCompleteListener(conversionOnCompleteListener);
+    @Override
+    protected void onPause() {
+        super.onPause();
+        NotificationEngine.getInstance(getApplicationContext()).setVisibleSender(null);
     }
 
-    private final OnCompleteListener<QuerySnapshot> conversionOnCompleteListener = task -> {
-        if(task.isSuccessful() && task.getResult() != null && task.getResult().getDocuments().size() > 0){
-            DocumentSnapshot documentSnapshot = task.getResult().getDocuments().get(0);
-            conversionId = documentSnapshot.getId();
-        }
-    };
-
     @Override
-    protected void onResume() {
-        super.onResume();
-        listenAvailabilityOfReceiver();
+    protected void onDestroy() {
+        super.onDestroy();
+        pushListener.detach();
+        if (messageWindow != null) {
+            messageWindow.detach();
+        }
+        binding.textAvailability.removeCallbacks(updateAvailabilityRunnable);
+        imageExecutor.shutdown();
     }
 }
\ No newline at end of file
@@ -3,10 +3,7 @@ package com.example.sigma_chat_v2.activities;
 
 import android.annotation.SuppressLint;
 import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
-import android.util.Base64;
 import android.view.View;
 import android.widget.Toast;
 
@@ -14,38 +11,47 @@ import androidx.activity.EdgeToEdge;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.ListUpdateCallback;
 
 import com.example.sigma_chat_v2.adapters.RecentConversationAdapter;
+import com.example.sigma_chat_v2.database.ChatDatabase;
+import com.example.sigma_chat_v2.database.MessageOutbox;
 import com.example.sigma_chat_v2.databinding.ActivityMainBinding;
+import com.example.sigma_chat_v2.firebase.ConversationMigration;
+import com.example.sigma_chat_v2.firebase.PresenceManager;
+import com.example.sigma_chat_v2.firebase.UserDirectory;
 import com.example.sigma_chat_v2.listeners.ConversionListener;
-import com.example.sigma_chat_v2.models.ChatMessage;
 import com.example.sigma_chat_v2.models.User;
+import com.example.sigma_chat_v2.repositories.ConversationRepository;
+import com.example.sigma_chat_v2.repositories.MessageRepository;
+import com.example.sigma_chat_v2.repositories.UserRepository;
+import com.example.sigma_chat_v2.storage.MessageImageStore;
+import com.example.sigma_chat_v2.utilities.AvatarCache;
 import com.example.sigma_chat_v2.utilities.Constants;
+import com.example.sigma_chat_v2.utilities.ConversationIndex;
+import com.example.sigma_chat_v2.utilities.NotificationEngine;
 import com.example.sigma_chat_v2.utilities.PreferenceManager;
-import com.google.firebase.firestore.DocumentChange;
+import com.example.sigma_chat_v2.utilities.StartupTracer;
+import com.example.sigma_chat_v2.viewmodels.ConversationsViewModel;
 import com.google.firebase.firestore.DocumentReference;
-import com.google.firebase.firestore.EventListener;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.messaging.FirebaseMessaging;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 
 public class MainActivity extends BaseActivity implements ConversionListener {
 
     private ActivityMainBinding binding;
     private PreferenceManager preferenceManager;
-    private List<ChatMessage> conversations;
     private RecentConversationAdapter conversationAdapter;
-    private FirebaseFirestore database;
+    private ConversationIndex conversations;
 
     @SuppressLint("SetTextI18n")
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        StartupTracer.beginSection("MainActivity.onCreate");
         super.onCreate(savedInstanceState);
         binding = ActivityMainBinding.inflate(getLayoutInflater());
         EdgeToEdge.enable(this);
@@ -53,9 +59,15 @@ public class MainActivity extends BaseActivity implements ConversionListener {
         preferenceManager = new PreferenceManager((getApplicationContext()));
         init();
         loadUserDetails();
-        getToken();
         setListeners();
-        listenConversations();
+        // None of this shows on the first frame.
+        StartupTracer.runAfterFirstDraw(this, "MainActivity.deferredStartup", () -> {
+            getToken();
+            ConversationMigration.runIfNeeded(preferenceManager);
+            UserDirectory.publishIfNeeded(getApplicationContext(), preferenceManager);
+            MessageOutbox.getInstance(getApplicationContext()).flush();
+            PresenceManager.getInstance(getApplicationContext()).refresh();
+        });
 
         // Optional: WindowInsets for edge-to-edge support
         ViewCompat.setOnApplyWindowInsetsListener(binding.getRoot(), (v, insets) -> {
@@ -63,84 +75,69 @@ public class MainActivity extends BaseActivity implements ConversionListener {
             v.setPadding(systemBars.left, systemBars.top, systemBars.right, systemBars.bottom);
             return insets;
         });
-
+        StartupTracer.endSection();
     }
 
     private void init(){
-        conversations = new ArrayList<>();
+        ConversationsViewModel viewModel = new ViewModelProvider(this).get(ConversationsViewModel.class);
+        conversations = viewModel.getConversations().getValue();
         conversationAdapter = new RecentConversationAdapter(conversations, this);
         binding.conversationsRecyclerView.setAdapter(conversationAdapter);
-        database = FirebaseFirestore.getInstance();
+        conversations.setUpdateCallback(conversationUpdateCallback);
+        viewModel.getConversations().observe(this, index ->
+                binding.conversationsRecyclerView.setVisibility(index.isEmpty() ? View.GONE : View.VISIBLE));
     }
 
+    // Forwards row changes to the adapter and keeps the newest conversation in view.
+    private final ListUpdateCallback conversationUpdateCallback = new ListUpdateCallback() {
+        @Override
+        public void onInserted(int position, int count) {
+            conversationAdapter.notifyItemRangeInserted(position, count);
+            if (position == 0) {
+                binding.conversationsRecyclerView.smoothScrollToPosition(0);
+            }
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            conversationAdapter.notifyItemRangeRemoved(position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            conversationAdapter.notifyItemMoved(fromPosition, toPosition);
+            if (toPosition == 0) {
+                binding.conversationsRecyclerView.smoothScrollToPosition(0);
+            }
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            conversationAdapter.notifyItemRangeChanged(position, count, payload);
+        }
+    };
+
     private void setListeners() {
         binding.signOut.setOnClickListener(v -> signOut());
         binding.fabNewChat.setOnClickListener(v ->
                 startActivity(new Intent(getApplicationContext(), UsersActivity.class)));
+        binding.imageSearch.setOnClickListener(v ->
+                startActivity(new Intent(getApplicationContext(), SearchActivity.class)));
     }
     private void loadUserDetails() {
         binding.textName.setText(preferenceManager.getString(Constants.KEY_NAME));
-        byte[] bytes = Base64.decode(preferenceManager.getString(Constants.KEY_IMAGE), Base64.DEFAULT);
-        Bitmap bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
-        binding.imageProfile.setImageBitmap(bitmap);
+        AvatarCache.getInstance(getApplicationContext()).load(
+                preferenceManager.getString(Constants.KEY_USER_ID),
+                preferenceManager.getString(Constants.KEY_IMAGE_HASH),
+                preferenceManager.getString(Constants.KEY_IMAGE),
+                binding.imageProfile
+        );
     }
 
     private void showToast(String message) {
         Toast.makeText(getApplicationContext(), message, Toast.LENGTH_SHORT).show();
     }
 
-    private void listenConversations(){
-        database.collection(Constants.KEY_COLLECTION_CONVERSATIONS)
-                .whereEqualTo(Constants.KEY_SENDER_ID, preferenceManager.getString(Constants.KEY_USER_ID))
-                .addSnapshotListener(eventListener);
-        database.collection(Constants.KEY_COLLECTION_CONVERSATIONS)
-                .whereEqualTo(Constants.KEY_RECEIVER_ID, preferenceManager.getString(Constants.KEY_USER_ID))
-                .addSnapshotListener(eventListener);
-    }
-
-    private final EventListener<QuerySnapshot> eventListener = ((value, error) ->{
-        if(error != null){
-            return;
-        }
-        if(value != null){
-            for (DocumentChange documentChange : value.getDocumentChanges()){
-                if(documentChange.getType() == DocumentChange.Type.ADDED){
-                    String senderId = documentChange.getDocument().getString(Constants.KEY_SENDER_ID);
-                    String receiverId = documentChange.getDocument().getString(Constants.KEY_RECEIVER_ID);
-                    ChatMessage chatMessage = new ChatMessage();
-                    chatMessage.senderId = senderId;
-                    chatMessage.receiverId = receiverId;
-                    if(preferenceManager.getString(Constants.KEY_USER_ID).equals(senderId)){
-                        chatMessage.conversionImage = documentChange.getDocument().getString(Constants.KEY_RECEIVER_IMAGE);
-                        chatMessage.conversionName = documentChange.getDocument().getString(Constants.KEY_RECEIVER_NAME);
-                        chatMessage.conversionId = documentChange.getDocument().getString(Constants.KEY_RECEIVER_ID);
-                    }else {
-                        chatMessage.conversionImage = documentChange.getDocument().getString(Constants.KEY_SENDER_IMAGE);
-                        chatMessage.conversionName = documentChange.getDocument().getString(Constants.KEY_SENDER_NAME);
-                        chatMessage.conversionId = documentChange.getDocument().getString(Constants.KEY_SENDER_ID);
-                    }
-                    chatMessage.message = documentChange.getDocument().getString(Constants.KEY_LAST_MESSAGE);
-                    chatMessage.dateObject = documentChange.getDocument().getDate(Constants.KEY_TIMESTAMP);
-                    conversations.add(chatMessage);
-                }else if(documentChange.getType() == DocumentChange.Type.MODIFIED){
-                    for (int i = 0; i < conversations.size(); i++){
-                        String senderId = documentChange.getDocument().getString(Constants.KEY_SENDER_ID);
-                        String receiverId = documentChange.getDocument().getString(Constants.KEY_RECEIVER_ID);
-                        if(conversations.get(i).senderId.equals(senderId) && conversations.get(i).receiverId.equals(receiverId)){
-                            conversations.get(i).message = documentChange.getDocument().getString(Constants.KEY_LAST_MESSAGE);
-                            conversations.get(i).dateObject = documentChange.getDocument().getDate(Constants.KEY_TIMESTAMP);
-                            break;
-                        }
-                    }
-                }
-            }
-            Collections.sort(conversations, (obj1, obj2) -> obj2.dateObject.compareTo(obj1.dateObject));
-            conversationAdapter.notifyDataSetChanged();
-            binding.conversationsRecyclerView.smoothScrollToPosition(0);
-            binding.conversationsRecyclerView.setVisibility(View.VISIBLE);
-        }
-    } );
-
     private void getToken() {
         FirebaseMessaging.getInstance().getToken().addOnSuccessListener(this::updateToken);
     }
@@ -165,15 +162,33 @@ public class MainActivity extends BaseActivity implements ConversionListener {
                 );
         HashMap<String, Object> updates = new HashMap<>();
         updates.put(Constants.KEY_FCM_TOKEN, FieldValue.delete());
+        updates.put(Constants.KEY_AVAILABILITY, 0);
+        updates.put(Constants.KEY_LAST_SEEN, FieldValue.serverTimestamp());
+        PresenceManager.getInstance(getApplicationContext()).reset();
         documentReference.update(updates)
                 .addOnSuccessListener(unused -> {
                     preferenceManager.clear();
+                    ConversationRepository.getInstance(getApplicationContext()).clear();
+                    MessageRepository.getInstance(getApplicationContext()).clear();
+                    UserRepository.getInstance(getApplicationContext()).clear();
+                    MessageImageStore.getInstance(getApplicationContext()).clear();
+                    NotificationEngine.getInstance(getApplicationContext()).clear();
+                    ChatDatabase chatDatabase = ChatDatabase.getInstance(getApplicationContext());
+                    chatDatabase.runAsync(chatDatabase::clearAll);
                     startActivity(new Intent(getApplicationContext(), SignInActivity.class));
                     finish();
                 })
                 .addOnFailureListener(e -> showToast("gabisa keluar"));
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (conversations != null) {
+            conversations.setUpdateCallback(null);
+        }
+    }
+
     @Override
     public void onConversionClicked(User user) {
         Intent intent = new Intent(getApplicationContext(), ChatActivity.class);
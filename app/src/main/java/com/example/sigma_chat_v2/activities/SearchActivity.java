@@ -0,0 +1,98 @@
+package com.example.sigma_chat_v2.activities;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+
+import androidx.activity.EdgeToEdge;
+import androidx.core.graphics.Insets;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.WindowInsetsCompat;
+import androidx.lifecycle.ViewModelProvider;
+
+import com.example.sigma_chat_v2.R;
+import com.example.sigma_chat_v2.adapters.SearchResultAdapter;
+import com.example.sigma_chat_v2.databinding.ActivitySearchBinding;
+import com.example.sigma_chat_v2.listeners.SearchResultListener;
+import com.example.sigma_chat_v2.models.MessageSearchResult;
+import com.example.sigma_chat_v2.models.User;
+import com.example.sigma_chat_v2.utilities.Constants;
+import com.example.sigma_chat_v2.viewmodels.SearchViewModel;
+
+// Full-text search over every message stored on the device; picking a result opens its chat
+// scrolled to that message.
+public class SearchActivity extends BaseActivity implements SearchResultListener {
+
+    private static final long SEARCH_DEBOUNCE_MS = 250;
+
+    private ActivitySearchBinding binding;
+    private SearchViewModel viewModel;
+    private SearchResultAdapter searchResultAdapter;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        binding = ActivitySearchBinding.inflate(getLayoutInflater());
+        EdgeToEdge.enable(this);
+        setContentView(binding.getRoot());
+        viewModel = new ViewModelProvider(this).get(SearchViewModel.class);
+        searchResultAdapter = new SearchResultAdapter(this);
+        binding.resultsRecyclerView.setAdapter(searchResultAdapter);
+        setListeners();
+        viewModel.getResults().observe(this, results -> {
+            searchResultAdapter.setResults(results);
+            boolean noMatches = results.isEmpty() && !binding.inputSearch.getText().toString().trim().isEmpty();
+            binding.textEmpty.setVisibility(noMatches ? View.VISIBLE : View.GONE);
+        });
+
+        ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
+            Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
+            v.setPadding(systemBars.left, systemBars.top, systemBars.right, systemBars.bottom);
+            return insets;
+        });
+    }
+
+    private void setListeners() {
+        binding.imageBack.setOnClickListener(v -> getOnBackPressedDispatcher().onBackPressed());
+        binding.inputSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                binding.inputSearch.removeCallbacks(searchRunnable);
+                binding.inputSearch.postDelayed(searchRunnable, SEARCH_DEBOUNCE_MS);
+            }
+        });
+    }
+
+    private final Runnable searchRunnable = () ->
+            viewModel.search(binding.inputSearch.getText().toString());
+
+    @Override
+    public void onSearchResultClicked(MessageSearchResult result) {
+        User user = new User();
+        user.id = result.otherUserId;
+        user.name = result.otherName;
+        user.imageHash = result.otherImageHash;
+        user.image = result.otherImage;
+        Intent intent = new Intent(getApplicationContext(), ChatActivity.class);
+        intent.putExtra(Constants.KEY_USER, user);
+        intent.putExtra(Constants.KEY_MESSAGE_ID, result.chatMessage.messageId);
+        intent.putExtra(Constants.KEY_TIMESTAMP, result.chatMessage.timestamp);
+        startActivity(intent);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        binding.inputSearch.removeCallbacks(searchRunnable);
+    }
+}
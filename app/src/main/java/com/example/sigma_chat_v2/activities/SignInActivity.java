@@ -32,6 +32,8 @@ public class SignInActivity extends AppCompatActivity {
             Intent intent = new Intent(getApplicationContext(), MainActivity.class);
             startActivity(intent);
             finish();
+            // Signed in: nothing of this screen is ever shown, so don't inflate it.
+            return;
         }
         binding = ActivitySignInBinding.inflate(getLayoutInflater());
         EdgeToEdge.enable(this);
@@ -68,7 +70,11 @@ public class SignInActivity extends AppCompatActivity {
                         preferenceManager.putBoolean(Constants.KEY_IS_SIGNED_IN, true);
                         preferenceManager.putstring(Constants.KEY_USER_ID, documentSnapshot.getId());
                         preferenceManager.putstring(Constants.KEY_NAME, documentSnapshot. getString(Constants.KEY_NAME));
-                        preferenceManager.putstring(Constants.KEY_IMAGE, documentSnapshot.getString(Constants.KEY_IMAGE));
+                        String imageHash = documentSnapshot.getString(Constants.KEY_IMAGE_HASH);
+                        preferenceManager.putstring(Constants.KEY_IMAGE_HASH, imageHash);
+                        if (imageHash == null) {
+                            preferenceManager.putstring(Constants.KEY_IMAGE, documentSnapshot.getString(Constants.KEY_IMAGE));
+                        }
                         Intent intent = new Intent(getApplicationContext(), MainActivity.class);
                         intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
                         startActivity(intent);
@@ -2,7 +2,6 @@ package com.example.sigma_chat_v2.activities;
 
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.MediaStore;
@@ -20,22 +19,29 @@ import androidx.core.view.WindowInsetsCompat;
 
 import com.example.sigma_chat_v2.R;
 import com.example.sigma_chat_v2.databinding.ActivitySignUpBinding;
+import com.example.sigma_chat_v2.firebase.UserDirectory;
+import com.example.sigma_chat_v2.utilities.AvatarStore;
+import com.example.sigma_chat_v2.utilities.AvatarVariant;
 import com.example.sigma_chat_v2.utilities.Constants;
+import com.example.sigma_chat_v2.utilities.ImagePipeline;
 import com.example.sigma_chat_v2.utilities.PreferenceManager;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
 
-import java.io.ByteArrayOutputStream;
-import android.util.Base64;
-
-import java.io.FileNotFoundException;
-import java.io.InputStream;
 import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class SignUpActivity extends AppCompatActivity {
 
     private ActivitySignUpBinding binding;
     private PreferenceManager preferenceManager;
-    private String encodedImage;
+    private AvatarStore.AvatarUpload avatarUpload;
+    private Bitmap previewBitmap;
+    // Decoded size of a picked photo: enough for the preview and the largest avatar variant.
+    private static final int PREVIEW_SIZE = AvatarVariant.PROFILE.size;
+    private final ExecutorService avatarExecutor = Executors.newSingleThreadExecutor();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -78,15 +84,26 @@ public class SignUpActivity extends AppCompatActivity {
         user.put(Constants.KEY_NAME, binding.inputName.getText().toString());
         user.put(Constants.KEY_EMAIL, binding.inputEmail.getText().toString());
         user.put(Constants.KEY_PASSWORD, binding.inputPassWord.getText().toString());
-        user.put(Constants.KEY_IMAGE, encodedImage);
-        database.collection(Constants.KEY_COLLECTION_USERS)
-                .add(user)
-                .addOnSuccessListener(documentReference -> {
+        user.put(Constants.KEY_IMAGE_HASH, avatarUpload.hash);
+        user.put(Constants.KEY_IMAGE_PLACEHOLDER, avatarUpload.placeholder);
+        DocumentReference documentReference = database.collection(Constants.KEY_COLLECTION_USERS).document();
+        WriteBatch batch = database.batch();
+        AvatarStore.getInstance(getApplicationContext()).addUpload(batch, avatarUpload);
+        batch.set(documentReference, user);
+        batch.set(UserDirectory.entryFor(database, documentReference.getId()), UserDirectory.entryOf(
+                binding.inputName.getText().toString(),
+                binding.inputEmail.getText().toString(),
+                avatarUpload.hash,
+                avatarUpload.placeholder
+        ));
+        batch.commit()
+                .addOnSuccessListener(unused -> {
                     loading(false);
                     preferenceManager.putBoolean(Constants.KEY_IS_SIGNED_IN, true);
                     preferenceManager.putstring(Constants.KEY_USER_ID, documentReference.getId());
                     preferenceManager.putstring(Constants.KEY_NAME, binding.inputName.getText().toString());
-                    preferenceManager.putstring(Constants.KEY_IMAGE, encodedImage);
+                    preferenceManager.putstring(Constants.KEY_IMAGE_HASH, avatarUpload.hash);
+                    preferenceManager.putBoolean(Constants.KEY_DIRECTORY_PUBLISHED, true);
                     Intent intent = new Intent(getApplicationContext(), MainActivity.class);
                     intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
                     startActivity(intent);
@@ -97,14 +114,26 @@ public class SignUpActivity extends AppCompatActivity {
                 });
     }
 
-    private String getEncodedImage(Bitmap bitmap) {
-        int previeWidth = 150;
-        int previewHeight = bitmap.getHeight() * previeWidth / bitmap.getWidth();
-        Bitmap previewBitmap = Bitmap.createScaledBitmap(bitmap, previeWidth, previewHeight, false);
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        previewBitmap.compress(Bitmap.CompressFormat.JPEG, 50, byteArrayOutputStream);
-        byte[] bytes = byteArrayOutputStream.toByteArray();
-        return Base64.encodeToString(bytes, Base64.DEFAULT);
+    // Queued behind any encode still reading the old preview, so the pool cannot hand it out early.
+    private void releasePreview() {
+        Bitmap released = previewBitmap;
+        previewBitmap = null;
+        if (released != null) {
+            avatarExecutor.execute(() -> ImagePipeline.getInstance().release(released));
+        }
+    }
+
+    // Encodes the avatar variants off the main thread; sign-up waits for them through avatarUpload.
+    private void prepareAvatar(Bitmap bitmap) {
+        avatarUpload = null;
+        avatarExecutor.execute(() -> {
+            AvatarStore.AvatarUpload upload = AvatarStore.getInstance(getApplicationContext()).prepare(bitmap);
+            runOnUiThread(() -> {
+                if (bitmap == previewBitmap) {
+                    avatarUpload = upload;
+                }
+            });
+        });
     }
 
     private final ActivityResultLauncher<Intent> pickImage = registerForActivityResult(
@@ -113,22 +142,24 @@ public class SignUpActivity extends AppCompatActivity {
                 if(result.getResultCode() == RESULT_OK) {
                     if(result.getData() != null) {
                         Uri imageUri = result.getData().getData();
-                        try {
-                            InputStream inputStream = getContentResolver().openInputStream(imageUri);
-                            Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
+                        ImagePipeline.getInstance().decode(getContentResolver(), imageUri, PREVIEW_SIZE, bitmap -> {
+                            if (bitmap == null) {
+                                showToast("Gambar tidak bisa dibuka");
+                                return;
+                            }
                             binding.imageProfile.setImageBitmap(bitmap);
                             binding.textaddimage.setVisibility(View.GONE);
-                            encodedImage = getEncodedImage(bitmap);
-                        }catch (FileNotFoundException e) {
-                            e.printStackTrace();
-                        }
+                            releasePreview();
+                            previewBitmap = bitmap;
+                            prepareAvatar(bitmap);
+                        });
                     }
                 }
             }
     );
 
     private Boolean isValidSignUpDetails() {
-        if(encodedImage == null) {
+        if(avatarUpload == null) {
             showToast("Select profile image");
             return false;
         } else if (binding.inputName.getText().toString().trim().isEmpty()) {
@@ -163,4 +194,14 @@ public class SignUpActivity extends AppCompatActivity {
             binding.buttonSignUp.setVisibility(View.VISIBLE);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (previewBitmap != null) {
+            binding.imageProfile.setImageBitmap(null);
+            releasePreview();
+        }
+        avatarExecutor.shutdown();
+    }
+}
@@ -2,12 +2,18 @@ package com.example.sigma_chat_v2.activities;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
 
 import androidx.activity.EdgeToEdge;
+import androidx.annotation.NonNull;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.sigma_chat_v2.R;
 import com.example.sigma_chat_v2.adapters.UsersAdapter;
@@ -16,16 +22,16 @@ import com.example.sigma_chat_v2.listeners.UserListener;
 import com.example.sigma_chat_v2.models.User;
 import com.example.sigma_chat_v2.utilities.Constants;
 import com.example.sigma_chat_v2.utilities.PreferenceManager;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
-
-import java.util.ArrayList;
-import java.util.List;
+import com.example.sigma_chat_v2.viewmodels.UsersViewModel;
 
 public class UsersActivity extends BaseActivity implements UserListener {
 
     private ActivityUsersBinding binding;
     private PreferenceManager preferenceManager;
+    private UsersViewModel viewModel;
+    private UsersAdapter usersAdapter;
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+    private static final int PREFETCH_DISTANCE = 5;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -34,6 +40,9 @@ public class UsersActivity extends BaseActivity implements UserListener {
         EdgeToEdge.enable(this);
         setContentView(binding.getRoot());
         preferenceManager = new PreferenceManager(getApplicationContext());
+        viewModel = new ViewModelProvider(this).get(UsersViewModel.class);
+        usersAdapter = new UsersAdapter(this);
+        binding.userRecycleView.setAdapter(usersAdapter);
         setListeners();
         getUsers();
 
@@ -46,42 +55,56 @@ public class UsersActivity extends BaseActivity implements UserListener {
 
     private void setListeners() {
         binding.imageBack.setOnClickListener(v -> getOnBackPressedDispatcher().onBackPressed());
+        binding.inputSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                binding.inputSearch.removeCallbacks(searchRunnable);
+                binding.inputSearch.postDelayed(searchRunnable, SEARCH_DEBOUNCE_MS);
+            }
+        });
+        binding.userRecycleView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (dy > 0 && layoutManager != null && layoutManager.findLastVisibleItemPosition()
+                        >= usersAdapter.getItemCount() - 1 - PREFETCH_DISTANCE) {
+                    viewModel.loadMore();
+                }
+            }
+        });
     }
 
+    private final Runnable searchRunnable = () ->
+            viewModel.search(binding.inputSearch.getText().toString());
+
 
     private void getUsers() {
-        loading(true);
-        FirebaseFirestore database = FirebaseFirestore.getInstance();
-        database.collection(Constants.KEY_COLLECTION_USERS)
-                .get()
-                .addOnCompleteListener(task -> {
-                    loading(false);
-                    String currentUserId = preferenceManager.getString(Constants.KEY_USER_ID);
-                    if (task.isSuccessful() && task.getResult() != null) {
-                        List<User> users = new ArrayList<>();
-                        for (QueryDocumentSnapshot queryDocumentSnapshot : task.getResult()) {
-                            if(currentUserId.equals(queryDocumentSnapshot.getId())) {
-                                continue;
-                            }
-                            User user = new User();
-                            user.name = queryDocumentSnapshot.getString(Constants.KEY_NAME);
-                            user.email = queryDocumentSnapshot.getString(Constants.KEY_EMAIL);
-                            user.image = queryDocumentSnapshot.getString(Constants.KEY_IMAGE);
-                            user.token = queryDocumentSnapshot.getString(Constants.KEY_FCM_TOKEN);
-                            user.id = queryDocumentSnapshot.getId();
-                            users.add(user);
-                        }
-                        if (users.size() > 0) {
-                            UsersAdapter usersAdapter = new UsersAdapter(users, this);
-                            binding.userRecycleView.setAdapter(usersAdapter);
-                            binding.userRecycleView.setVisibility(View.VISIBLE);
-                        }else {
-                            showErrorMessage();
-                        }
-                    }else {
-                       showErrorMessage();
-                    }
-                });
+        viewModel.isLoading().observe(this, this::loading);
+        viewModel.getUsers().observe(this, users -> {
+            if (users == null) {
+                return;
+            }
+            usersAdapter.submitList(users);
+            if (users.size() > 0) {
+                binding.userRecycleView.setVisibility(View.VISIBLE);
+                binding.textErrorMessage.setVisibility(View.GONE);
+            }else {
+                showErrorMessage();
+            }
+        });
+        viewModel.hasLoadFailed().observe(this, failed -> {
+            if (failed && usersAdapter.getItemCount() == 0) {
+                showErrorMessage();
+            }
+        });
     }
 
     private void showErrorMessage() {
@@ -97,6 +120,12 @@ public class UsersActivity extends BaseActivity implements UserListener {
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        binding.inputSearch.removeCallbacks(searchRunnable);
+    }
+
     @Override
     public void onUserClicked(User user) {
         Intent intent = new Intent(getApplicationContext(), ChatActivity.class);
@@ -2,64 +2,111 @@ package com.example.sigma_chat_v2.adapters;
 
 import android.graphics.Bitmap;
 import android.view.LayoutInflater;
+import android.view.View;
 import android.view.ViewGroup;
+import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
+import androidx.constraintlayout.widget.ConstraintLayout;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.sigma_chat_v2.databinding.ItemContainerReceivedImageBinding;
 import com.example.sigma_chat_v2.databinding.ItemContainerReceivedMessageBinding;
+import com.example.sigma_chat_v2.databinding.ItemContainerSentImageBinding;
 import com.example.sigma_chat_v2.databinding.ItemContainerSentMessageBinding;
 import com.example.sigma_chat_v2.models.ChatMessage;
+import com.example.sigma_chat_v2.models.ImageAttachment;
+import com.example.sigma_chat_v2.storage.MessageImageStore;
+import com.example.sigma_chat_v2.utilities.RelativeTimeTicker;
+import com.example.sigma_chat_v2.utilities.TimestampFormatter;
+
 import java.util.List;
 
-public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.MessageViewHolder> implements RelativeTimeTicker.Listener {
 
     private final List<ChatMessage> chatMessages;
     private Bitmap receiverProfileImage;
-    private final String senderId;
 
     public static final int VIEW_TYPE_SENT = 1;
     public static final int VIEW_TYPE_RECEIVED = 2;
+    public static final int VIEW_TYPE_SENT_IMAGE = 3;
+    public static final int VIEW_TYPE_RECEIVED_IMAGE = 4;
+    // Very tall photos are cropped rather than filling the screen.
+    private static final float MAX_IMAGE_ASPECT = 1.5f;
+
+    private static final Object PAYLOAD_TIME = new Object();
 
     public void setReceiverProfileImage(Bitmap bitmap){
         receiverProfileImage = bitmap;
     }
 
-    public ChatAdapter(List<ChatMessage> chatMessages, Bitmap receiverProfileImage, String senderId) {
+    public ChatAdapter(List<ChatMessage> chatMessages, Bitmap receiverProfileImage) {
         this.chatMessages = chatMessages;
         this.receiverProfileImage = receiverProfileImage;
-        this.senderId = senderId;
     }
 
     @NonNull
     @Override
-    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        if(viewType == VIEW_TYPE_SENT) {
-            return new SentMessageViewHolder(
-                    ItemContainerSentMessageBinding.inflate(
-                            LayoutInflater.from(parent.getContext()),
-                            parent,
-                            false
-                    )
-            );
-        }else {
-            return new ReceivedMessageViewHolder(
-                    ItemContainerReceivedMessageBinding.inflate(
-                            LayoutInflater.from(parent.getContext()),
-                            parent,
-                            false
-                    )
-            );
+    public MessageViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        switch (viewType) {
+            case VIEW_TYPE_SENT:
+                return new SentMessageViewHolder(
+                        ItemContainerSentMessageBinding.inflate(inflater, parent, false));
+            case VIEW_TYPE_SENT_IMAGE:
+                return new SentImageViewHolder(
+                        ItemContainerSentImageBinding.inflate(inflater, parent, false));
+            case VIEW_TYPE_RECEIVED_IMAGE:
+                return new ReceivedImageViewHolder(
+                        ItemContainerReceivedImageBinding.inflate(inflater, parent, false));
+            default:
+                return new ReceivedMessageViewHolder(
+                        ItemContainerReceivedMessageBinding.inflate(inflater, parent, false));
         }
     }
 
     @Override
-    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
-        if(getItemViewType(position) == VIEW_TYPE_SENT) {
-            ((SentMessageViewHolder) holder).setData(chatMessages.get(position));
-        } else {
-            ((ReceivedMessageViewHolder) holder).setData(chatMessages.get(position), receiverProfileImage);
+    public void onBindViewHolder(@NonNull MessageViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.size() == 1 && payloads.get(0) == PAYLOAD_TIME) {
+            // Ticker refresh: only the time label changed.
+            holder.setTime(chatMessages.get(position).timestamp);
+            return;
         }
+        onBindViewHolder(holder, position);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull MessageViewHolder holder, int position) {
+        holder.setData(chatMessages.get(position), receiverProfileImage);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        RelativeTimeTicker.getInstance().addListener(this);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        RelativeTimeTicker.getInstance().removeListener(this);
+    }
+
+    // Messages are ordered by time, so the rows with relative labels are a suffix of the list.
+    @Override
+    public void onTick(long now) {
+        int start = chatMessages.size();
+        while (start > 0 && TimestampFormatter.isRelative(chatMessages.get(start - 1).timestamp, now - TimestampFormatter.MINUTE_MS)) {
+            start--;
+        }
+        if (start < chatMessages.size()) {
+            notifyItemRangeChanged(start, chatMessages.size() - start, PAYLOAD_TIME);
+        }
+    }
+
+    private static String timeLabel(long timestamp) {
+        if (timestamp == ChatMessage.UNRESOLVED_TIMESTAMP) {
+            return "";
+        }
+        return TimestampFormatter.formatRelative(timestamp, System.currentTimeMillis());
     }
 
     @Override
@@ -69,14 +116,41 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
     @Override
     public int getItemViewType(int position) {
-        if(chatMessages.get(position).senderId.equals(senderId)) {
-            return VIEW_TYPE_SENT;
-        }else {
-            return VIEW_TYPE_RECEIVED;
+        ChatMessage chatMessage = chatMessages.get(position);
+        if (chatMessage.image != null) {
+            return chatMessage.sent ? VIEW_TYPE_SENT_IMAGE : VIEW_TYPE_RECEIVED_IMAGE;
+        }
+        return chatMessage.sent ? VIEW_TYPE_SENT : VIEW_TYPE_RECEIVED;
+    }
+
+    abstract static class MessageViewHolder extends RecyclerView.ViewHolder {
+
+        MessageViewHolder(View itemView) {
+            super(itemView);
+        }
+
+        abstract void setData(ChatMessage chatMessage, Bitmap receiverProfileImage);
+
+        abstract void setTime(long timestamp);
+    }
+
+    // Sizes the bubble from the photo's dimensions before anything is decoded, so rows do not jump
+    // when the preview and then the full image arrive.
+    private static void bindImage(ImageAttachment image, ImageView imageMessage) {
+        ConstraintLayout.LayoutParams layoutParams = (ConstraintLayout.LayoutParams) imageMessage.getLayoutParams();
+        String ratio = "H,1:1";
+        if (image.width > 0 && image.height > 0) {
+            float height = Math.min(image.height, image.width * MAX_IMAGE_ASPECT);
+            ratio = "H," + image.width + ":" + Math.round(height);
+        }
+        if (!ratio.equals(layoutParams.dimensionRatio)) {
+            layoutParams.dimensionRatio = ratio;
+            imageMessage.setLayoutParams(layoutParams);
         }
+        MessageImageStore.getInstance(imageMessage.getContext()).load(image, imageMessage);
     }
 
-    static class SentMessageViewHolder extends RecyclerView.ViewHolder {
+    static class SentMessageViewHolder extends MessageViewHolder {
 
         private final ItemContainerSentMessageBinding binding;
 
@@ -85,13 +159,19 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
             binding = itemContainerSentMessageBinding;
         }
 
-        void setData(ChatMessage chatMessage) {
+        @Override
+        void setData(ChatMessage chatMessage, Bitmap receiverProfileImage) {
             binding.textMessage.setText(chatMessage.message);
-            binding.textDateTime.setText(chatMessage.dateTime);
+            setTime(chatMessage.timestamp);
+        }
+
+        @Override
+        void setTime(long timestamp) {
+            binding.textDateTime.setText(timeLabel(timestamp));
         }
     }
 
-    static class ReceivedMessageViewHolder extends RecyclerView.ViewHolder {
+    static class ReceivedMessageViewHolder extends MessageViewHolder {
         private final ItemContainerReceivedMessageBinding binding;
 
         ReceivedMessageViewHolder(ItemContainerReceivedMessageBinding itemContainerReceivedMessageBinding) {
@@ -99,12 +179,63 @@ public class ChatAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
             binding = itemContainerReceivedMessageBinding;
         }
 
+        @Override
         void setData(ChatMessage chatMessage, Bitmap receiverProfileImage) {
             binding.textMessage.setText(chatMessage.message);
-            binding.textDateTime.setText(chatMessage.dateTime);
+            setTime(chatMessage.timestamp);
+            if(receiverProfileImage != null){
+                binding.imageProfile.setImageBitmap(receiverProfileImage);
+            }
+        }
+
+        @Override
+        void setTime(long timestamp) {
+            binding.textDateTime.setText(timeLabel(timestamp));
+        }
+    }
+
+    static class SentImageViewHolder extends MessageViewHolder {
+
+        private final ItemContainerSentImageBinding binding;
+
+        SentImageViewHolder(ItemContainerSentImageBinding itemContainerSentImageBinding) {
+            super(itemContainerSentImageBinding.getRoot());
+            binding = itemContainerSentImageBinding;
+        }
+
+        @Override
+        void setData(ChatMessage chatMessage, Bitmap receiverProfileImage) {
+            bindImage(chatMessage.image, binding.imageMessage);
+            setTime(chatMessage.timestamp);
+        }
+
+        @Override
+        void setTime(long timestamp) {
+            binding.textDateTime.setText(timeLabel(timestamp));
+        }
+    }
+
+    static class ReceivedImageViewHolder extends MessageViewHolder {
+
+        private final ItemContainerReceivedImageBinding binding;
+
+        ReceivedImageViewHolder(ItemContainerReceivedImageBinding itemContainerReceivedImageBinding) {
+            super(itemContainerReceivedImageBinding.getRoot());
+            binding = itemContainerReceivedImageBinding;
+        }
+
+        @Override
+        void setData(ChatMessage chatMessage, Bitmap receiverProfileImage) {
+            bindImage(chatMessage.image, binding.imageMessage);
+            setTime(chatMessage.timestamp);
             if(receiverProfileImage != null){
                 binding.imageProfile.setImageBitmap(receiverProfileImage);
             }
         }
+
+        @Override
+        void setTime(long timestamp) {
+            binding.textDateTime.setText(timeLabel(timestamp));
+        }
     }
 }
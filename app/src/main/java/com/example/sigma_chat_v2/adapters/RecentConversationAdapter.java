@@ -1,10 +1,5 @@
 package com.example.sigma_chat_v2.adapters;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.text.Layout;
-import android.util.Base64;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.ViewGroup;
 
@@ -13,18 +8,18 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.sigma_chat_v2.databinding.ItemContainerRecentConversionBinding;
 import com.example.sigma_chat_v2.listeners.ConversionListener;
-import com.example.sigma_chat_v2.models.ChatMessage;
+import com.example.sigma_chat_v2.models.ConversationSummary;
 import com.example.sigma_chat_v2.models.User;
-
-import java.util.List;
+import com.example.sigma_chat_v2.utilities.AvatarCache;
+import com.example.sigma_chat_v2.utilities.ConversationIndex;
 
 public class RecentConversationAdapter extends RecyclerView.Adapter<RecentConversationAdapter.ConversionViewHolder> {
 
-    private final List<ChatMessage> chatMessages;
+    private final ConversationIndex conversations;
     private final ConversionListener conversionListener;
 
-    public RecentConversationAdapter(List<ChatMessage> chatMessages, ConversionListener conversionListener) {
-        this.chatMessages = chatMessages;
+    public RecentConversationAdapter(ConversationIndex conversations, ConversionListener conversionListener) {
+        this.conversations = conversations;
         this.conversionListener = conversionListener;
     }
 
@@ -42,13 +37,13 @@ public class RecentConversationAdapter extends RecyclerView.Adapter<RecentConver
 
     @Override
     public void onBindViewHolder(@NonNull ConversionViewHolder holder, int position) {
-        holder.setData(chatMessages.get(position));
+        holder.setData(conversations.get(position));
 
     }
 
     @Override
     public int getItemCount() {
-        return chatMessages.size();
+        return conversations.size();
     }
 
     class ConversionViewHolder extends RecyclerView.ViewHolder {
@@ -60,31 +55,24 @@ public class RecentConversationAdapter extends RecyclerView.Adapter<RecentConver
             binding = itemContainerRecentConversionBinding;
         }
 
-        void setData(ChatMessage chatMessage){
-            binding.iamgeprofile.setImageBitmap(getConversionImage(chatMessage.conversionImage));
-            binding.textName.setText(chatMessage.conversionName);
-            binding.textRecentMessage.setText(chatMessage.message);
+        void setData(ConversationSummary conversation){
+            AvatarCache.getInstance(binding.getRoot().getContext()).load(
+                    conversation.otherUserId,
+                    conversation.otherImageHash,
+                    conversation.otherImage,
+                    binding.iamgeprofile
+            );
+            binding.textName.setText(conversation.otherName);
+            binding.textRecentMessage.setText(conversation.lastMessage);
             binding.getRoot().setOnClickListener(v -> {
                 User user = new User();
-                user.id = chatMessage.conversionId;
-                user.name = chatMessage.conversionName;
-                user.image = chatMessage.conversionImage;
+                user.id = conversation.otherUserId;
+                user.name = conversation.otherName;
+                user.image = conversation.otherImage;
+                user.imageHash = conversation.otherImageHash;
                 conversionListener.onConversionClicked(user);
             });
         }
     }
-    private Bitmap getConversionImage(String encodedImage) {
-        try {
-            if (encodedImage != null) {
-                byte[] bytes = Base64.decode(encodedImage.getBytes(), Base64.DEFAULT);
-                return BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
-            } else {
-                Log.w("RecentConversationAdapter", "encodedImage is null");
-            }
-        } catch (Exception e) {
-            Log.e("RecentConversationAdapter", "Failed to decode image", e);
-        }
-        return null;
-    }
 
 }
@@ -0,0 +1,103 @@
+package com.example.sigma_chat_v2.adapters;
+
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.sigma_chat_v2.database.ChatDatabase;
+import com.example.sigma_chat_v2.databinding.ItemContainerRecentConversionBinding;
+import com.example.sigma_chat_v2.listeners.SearchResultListener;
+import com.example.sigma_chat_v2.models.MessageSearchResult;
+import com.example.sigma_chat_v2.utilities.AvatarCache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SearchResultAdapter extends RecyclerView.Adapter<SearchResultAdapter.SearchResultViewHolder> {
+
+    private final SearchResultListener searchResultListener;
+    private List<MessageSearchResult> results = new ArrayList<>();
+
+    public SearchResultAdapter(SearchResultListener searchResultListener) {
+        this.searchResultListener = searchResultListener;
+    }
+
+    public void setResults(List<MessageSearchResult> results) {
+        this.results = results;
+        notifyDataSetChanged();
+    }
+
+    @NonNull
+    @Override
+    public SearchResultViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        return new SearchResultViewHolder(
+                ItemContainerRecentConversionBinding.inflate(
+                        LayoutInflater.from(parent.getContext()),
+                        parent,
+                        false
+                )
+        );
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull SearchResultViewHolder holder, int position) {
+        holder.setData(results.get(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return results.size();
+    }
+
+    // Turns the snippet's match markers into bold spans.
+    static CharSequence highlight(String snippet) {
+        SpannableStringBuilder builder = new SpannableStringBuilder();
+        if (snippet == null) {
+            return builder;
+        }
+        int matchStart = -1;
+        for (int i = 0; i < snippet.length(); i++) {
+            char c = snippet.charAt(i);
+            if (c == ChatDatabase.SNIPPET_MATCH_START) {
+                matchStart = builder.length();
+            } else if (c == ChatDatabase.SNIPPET_MATCH_END) {
+                if (matchStart >= 0) {
+                    builder.setSpan(new StyleSpan(Typeface.BOLD), matchStart, builder.length(),
+                            Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                }
+                matchStart = -1;
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder;
+    }
+
+    class SearchResultViewHolder extends RecyclerView.ViewHolder {
+
+        ItemContainerRecentConversionBinding binding;
+
+        SearchResultViewHolder(ItemContainerRecentConversionBinding itemContainerRecentConversionBinding) {
+            super(itemContainerRecentConversionBinding.getRoot());
+            binding = itemContainerRecentConversionBinding;
+        }
+
+        void setData(MessageSearchResult result) {
+            AvatarCache.getInstance(binding.getRoot().getContext()).load(
+                    result.otherUserId,
+                    result.otherImageHash,
+                    result.otherImage,
+                    binding.iamgeprofile
+            );
+            binding.textName.setText(result.otherName);
+            binding.textRecentMessage.setText(highlight(result.snippet));
+            binding.getRoot().setOnClickListener(v -> searchResultListener.onSearchResultClicked(result));
+        }
+    }
+}
@@ -1,26 +1,40 @@
 package com.example.sigma_chat_v2.adapters;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.util.Base64;
 import android.view.LayoutInflater;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.sigma_chat_v2.databinding.ItemContainerUserBinding;
 import com.example.sigma_chat_v2.listeners.UserListener;
 import com.example.sigma_chat_v2.models.User;
+import com.example.sigma_chat_v2.utilities.AvatarCache;
 
-import java.util.List;
+import java.util.Objects;
 
-public class UsersAdapter extends RecyclerView.Adapter<UsersAdapter.UserViewHolder> {
-    private final List<User> users;
+public class UsersAdapter extends ListAdapter<User, UsersAdapter.UserViewHolder> {
     private final UserListener userListener;
 
-    public UsersAdapter(List<User> users, UserListener userListener) {
-        this.users = users;
+    private static final DiffUtil.ItemCallback<User> DIFF_CALLBACK = new DiffUtil.ItemCallback<User>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull User oldItem, @NonNull User newItem) {
+            return Objects.equals(oldItem.id, newItem.id);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull User oldItem, @NonNull User newItem) {
+            return Objects.equals(oldItem.name, newItem.name)
+                    && Objects.equals(oldItem.email, newItem.email)
+                    && Objects.equals(oldItem.imageHash, newItem.imageHash)
+                    && Objects.equals(oldItem.image, newItem.image);
+        }
+    };
+
+    public UsersAdapter(UserListener userListener) {
+        super(DIFF_CALLBACK);
         this.userListener = userListener;
     }
 
@@ -37,12 +51,7 @@ public class UsersAdapter extends RecyclerView.Adapter<UsersAdapter.UserViewHold
 
     @Override
     public void onBindViewHolder(@NonNull UsersAdapter.UserViewHolder holder, int position) {
-        holder.setUserData(users.get(position));
-    }
-
-    @Override
-    public int getItemCount() {
-        return users.size();
+        holder.setUserData(getItem(position));
     }
 
     class UserViewHolder extends RecyclerView.ViewHolder {
@@ -55,12 +64,9 @@ public class UsersAdapter extends RecyclerView.Adapter<UsersAdapter.UserViewHold
         void setUserData(User user) {
             binding.textName.setText(user.name);
             binding.textEmail.setText(user.email);
-            binding.iamgeprofile.setImageBitmap(getUserImage(user.image));
+            AvatarCache.getInstance(binding.getRoot().getContext())
+                    .load(user.id, user.imageHash, user.image, user.imagePlaceholder, binding.iamgeprofile);
             binding.getRoot().setOnClickListener(v -> userListener.onUserClicked(user));
         }
     }
-    private Bitmap getUserImage(String encodeImage) {
-        byte [] bytes = Base64.decode(encodeImage, Base64.DEFAULT);
-        return BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
-    }
 }
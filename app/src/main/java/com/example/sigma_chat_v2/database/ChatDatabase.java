@@ -0,0 +1,627 @@
+package com.example.sigma_chat_v2.database;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.sigma_chat_v2.models.ChatMessage;
+import com.example.sigma_chat_v2.models.ConversationSummary;
+import com.example.sigma_chat_v2.models.ImageAttachment;
+import com.example.sigma_chat_v2.models.MessageSearchResult;
+import com.example.sigma_chat_v2.models.User;
+import com.example.sigma_chat_v2.utilities.ConversationId;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ChatDatabase extends SQLiteOpenHelper {
+
+    public interface Query<T> {
+        T run(ChatDatabase chatDatabase);
+    }
+
+    public interface ResultCallback<T> {
+        void onResult(T result);
+    }
+
+    private static final String DATABASE_NAME = "sigma_chat.db";
+    private static final int DATABASE_VERSION = 4;
+
+    static final String TABLE_MESSAGES = "messages";
+    static final String TABLE_CONVERSATIONS = "conversations";
+    static final String TABLE_USERS = "users";
+    static final String TABLE_OUTBOX = "outbox";
+    static final String TABLE_MESSAGES_FTS = "messages_fts";
+    // Null blob id for text messages.
+    private static final String IMAGE_COLUMNS_DEFINITION = "image_blob_id TEXT, image_preview TEXT, "
+            + "image_width INTEGER NOT NULL DEFAULT 0, image_height INTEGER NOT NULL DEFAULT 0";
+
+    // Markers around matched terms in search snippets; the screen showing them turns these into
+    // spans.
+    public static final char SNIPPET_MATCH_START = '\u0001';
+    public static final char SNIPPET_MATCH_END = '\u0002';
+    // BM25 parameters.
+    private static final double RANK_K1 = 1.2;
+    private static final double RANK_B = 0.75;
+
+    private static ChatDatabase instance = null;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public static synchronized ChatDatabase getInstance(Context context) {
+        if (instance == null) {
+            instance = new ChatDatabase(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ChatDatabase(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    // Benchmarks open a throwaway database under another name.
+    ChatDatabase(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        db.enableWriteAheadLogging();
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_MESSAGES + " ("
+                + "id TEXT PRIMARY KEY, "
+                + "conversation_id TEXT NOT NULL, "
+                + "sender_id TEXT, "
+                + "receiver_id TEXT, "
+                + "message TEXT, "
+                + "timestamp INTEGER NOT NULL, "
+                + "pending INTEGER NOT NULL DEFAULT 0, "
+                + IMAGE_COLUMNS_DEFINITION + ")");
+        db.execSQL("CREATE INDEX index_messages_conversation_timestamp ON "
+                + TABLE_MESSAGES + " (conversation_id, timestamp, id)");
+        db.execSQL("CREATE TABLE " + TABLE_CONVERSATIONS + " ("
+                + "id TEXT PRIMARY KEY, "
+                + "owner_id TEXT NOT NULL, "
+                + "sender_id TEXT, "
+                + "receiver_id TEXT, "
+                + "other_user_id TEXT, "
+                + "other_name TEXT, "
+                + "other_image_hash TEXT, "
+                + "other_image TEXT, "
+                + "last_message TEXT, "
+                + "timestamp INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX index_conversations_owner_timestamp ON "
+                + TABLE_CONVERSATIONS + " (owner_id, timestamp)");
+        db.execSQL("CREATE TABLE " + TABLE_USERS + " ("
+                + "id TEXT PRIMARY KEY, "
+                + "name TEXT, "
+                + "email TEXT, "
+                + "image_hash TEXT, "
+                + "image_placeholder TEXT, "
+                + "image TEXT, "
+                + "token TEXT)");
+        db.execSQL("CREATE TABLE " + TABLE_OUTBOX + " ("
+                + "message_id TEXT PRIMARY KEY, "
+                + "conversation_fields TEXT, "
+                + "attempts INTEGER NOT NULL DEFAULT 0, "
+                + "next_attempt_at INTEGER NOT NULL DEFAULT 0, "
+                + "upload_uri TEXT)");
+        createSearchIndex(db);
+    }
+
+    // Full-text index over message bodies. It is an external content FTS4 table, so the text is
+    // stored once in messages, and triggers keep it current with every write to that table. FTS4
+    // rather than FTS5 because FTS5 is missing from the platform SQLite on many devices.
+    private static void createSearchIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE " + TABLE_MESSAGES_FTS + " USING fts4("
+                + "content=\"" + TABLE_MESSAGES + "\", message, tokenize=unicode61)");
+        db.execSQL("CREATE TRIGGER messages_fts_after_insert AFTER INSERT ON " + TABLE_MESSAGES + " BEGIN "
+                + "INSERT INTO " + TABLE_MESSAGES_FTS + " (docid, message) VALUES (new.rowid, new.message); END");
+        db.execSQL("CREATE TRIGGER messages_fts_before_delete BEFORE DELETE ON " + TABLE_MESSAGES + " BEGIN "
+                + "DELETE FROM " + TABLE_MESSAGES_FTS + " WHERE docid = old.rowid; END");
+        db.execSQL("CREATE TRIGGER messages_fts_before_update BEFORE UPDATE OF message ON " + TABLE_MESSAGES
+                + " WHEN old.message IS NOT new.message BEGIN "
+                + "DELETE FROM " + TABLE_MESSAGES_FTS + " WHERE docid = old.rowid; END");
+        db.execSQL("CREATE TRIGGER messages_fts_after_update AFTER UPDATE OF message ON " + TABLE_MESSAGES
+                + " WHEN old.message IS NOT new.message BEGIN "
+                + "INSERT INTO " + TABLE_MESSAGES_FTS + " (docid, message) VALUES (new.rowid, new.message); END");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Each step keeps the outbox and cached history; a schema bump adds the next one.
+        if (oldVersion < 2) {
+            // The index is built from what is already stored.
+            createSearchIndex(db);
+            db.execSQL("INSERT INTO " + TABLE_MESSAGES_FTS + " (" + TABLE_MESSAGES_FTS + ") VALUES ('rebuild')");
+        }
+        if (oldVersion < 3) {
+            db.execSQL("ALTER TABLE " + TABLE_USERS + " ADD COLUMN image_placeholder TEXT");
+        }
+        if (oldVersion < 4) {
+            for (String column : IMAGE_COLUMNS_DEFINITION.split(", ")) {
+                db.execSQL("ALTER TABLE " + TABLE_MESSAGES + " ADD COLUMN " + column);
+            }
+            db.execSQL("ALTER TABLE " + TABLE_OUTBOX + " ADD COLUMN upload_uri TEXT");
+        }
+    }
+
+    public <T> void runAsync(Query<T> query, ResultCallback<T> callback) {
+        executor.execute(() -> {
+            T result = query.run(this);
+            if (callback != null) {
+                mainHandler.post(() -> callback.onResult(result));
+            }
+        });
+    }
+
+    public void runAsync(Runnable runnable) {
+        executor.execute(runnable);
+    }
+
+    // Messages
+
+    public void saveMessages(List<ChatMessage> chatMessages) {
+        if (chatMessages.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (ChatMessage chatMessage : chatMessages) {
+                if (chatMessage.timestamp == ChatMessage.UNRESOLVED_TIMESTAMP) {
+                    continue;
+                }
+                upsertMessage(db, toValues(chatMessage, false));
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // uploadUri is the source of an image message's blob, or null when there is nothing to upload.
+    public void savePendingMessage(ChatMessage chatMessage, String conversationFields, String uploadUri) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            upsertMessage(db, toValues(chatMessage, true));
+            ContentValues outbox = new ContentValues();
+            outbox.put("message_id", chatMessage.messageId);
+            outbox.put("conversation_fields", conversationFields);
+            outbox.put("upload_uri", uploadUri);
+            db.insertWithOnConflict(TABLE_OUTBOX, null, outbox, SQLiteDatabase.CONFLICT_REPLACE);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Snapshots re-deliver the same messages constantly. Updating in place instead of replacing
+    // keeps the rowid, so the search index is only touched when the text actually changed.
+    private static void upsertMessage(SQLiteDatabase db, ContentValues values) {
+        if (db.insertWithOnConflict(TABLE_MESSAGES, null, values, SQLiteDatabase.CONFLICT_IGNORE) == -1) {
+            db.update(TABLE_MESSAGES, values, "id = ?", new String[]{values.getAsString("id")});
+        }
+    }
+
+    private static ContentValues toValues(ChatMessage chatMessage, boolean pending) {
+        ContentValues values = new ContentValues();
+        values.put("id", chatMessage.messageId);
+        values.put("conversation_id", ConversationId.of(chatMessage.senderId, chatMessage.receiverId));
+        values.put("sender_id", chatMessage.senderId);
+        values.put("receiver_id", chatMessage.receiverId);
+        values.put("message", chatMessage.message);
+        values.put("timestamp", chatMessage.timestamp);
+        values.put("pending", pending ? 1 : 0);
+        ImageAttachment image = chatMessage.image;
+        values.put("image_blob_id", image == null ? null : image.blobId);
+        values.put("image_preview", image == null ? null : image.preview);
+        values.put("image_width", image == null ? 0 : image.width);
+        values.put("image_height", image == null ? 0 : image.height);
+        return values;
+    }
+
+    // Reads image_blob_id, image_preview, image_width and image_height starting at the given
+    // column.
+    private static ImageAttachment imageOf(Cursor cursor, int column) {
+        if (cursor.isNull(column)) {
+            return null;
+        }
+        return new ImageAttachment(
+                cursor.getString(column),
+                cursor.getString(column + 1),
+                cursor.getInt(column + 2),
+                cursor.getInt(column + 3)
+        );
+    }
+
+    // The newest stored message time of a conversation, or -1 when none is stored.
+    public long getLatestTimestamp(String conversationId) {
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT MAX(timestamp) FROM " + TABLE_MESSAGES + " WHERE conversation_id = ?",
+                new String[]{conversationId})) {
+            if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                return cursor.getLong(0);
+            }
+        }
+        return -1;
+    }
+
+    public List<ChatMessage> getLatestMessages(String conversationId, int limit, String currentUserId) {
+        List<ChatMessage> chatMessages = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(
+                TABLE_MESSAGES,
+                new String[]{"id", "sender_id", "receiver_id", "message", "timestamp",
+                        "image_blob_id", "image_preview", "image_width", "image_height"},
+                "conversation_id = ?",
+                new String[]{conversationId},
+                null, null,
+                "timestamp DESC, id DESC",
+                String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                chatMessages.add(new ChatMessage(
+                        cursor.getString(0),
+                        cursor.getString(1),
+                        cursor.getString(2),
+                        cursor.getString(3),
+                        cursor.getLong(4),
+                        currentUserId,
+                        imageOf(cursor, 5)
+                ));
+            }
+        }
+        Collections.reverse(chatMessages);
+        return chatMessages;
+    }
+
+    // Search
+
+    // Ranks every match with BM25 computed from matchinfo(), since the platform SQLite offers no
+    // ranking function, then loads rows and snippets only for the best `limit` of them.
+    public List<MessageSearchResult> searchMessages(String query, String currentUserId, int limit) {
+        List<MessageSearchResult> results = new ArrayList<>();
+        String match = toMatchExpression(query);
+        if (match == null || limit <= 0) {
+            return results;
+        }
+        SQLiteDatabase db = getReadableDatabase();
+        PriorityQueue<double[]> best = new PriorityQueue<>(limit + 1, (obj1, obj2) -> Double.compare(obj1[1], obj2[1]));
+        try (Cursor cursor = db.rawQuery(
+                "SELECT docid, matchinfo(" + TABLE_MESSAGES_FTS + ", 'pcnalx') FROM " + TABLE_MESSAGES_FTS
+                        + " WHERE " + TABLE_MESSAGES_FTS + " MATCH ?",
+                new String[]{match})) {
+            while (cursor.moveToNext()) {
+                best.add(new double[]{cursor.getLong(0), rank(cursor.getBlob(1))});
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+        if (best.isEmpty()) {
+            return results;
+        }
+        HashMap<Long, Double> scores = new HashMap<>();
+        StringBuilder docIds = new StringBuilder();
+        for (double[] entry : best) {
+            scores.put((long) entry[0], entry[1]);
+            if (docIds.length() > 0) {
+                docIds.append(',');
+            }
+            docIds.append((long) entry[0]);
+        }
+        try (Cursor cursor = db.rawQuery(
+                "SELECT f.docid, m.id, m.conversation_id, m.sender_id, m.receiver_id, m.message, m.timestamp, "
+                        + "snippet(" + TABLE_MESSAGES_FTS + ", '" + SNIPPET_MATCH_START + "', '"
+                        + SNIPPET_MATCH_END + "', '...', -1, 12), "
+                        + "c.other_name, c.other_image_hash, c.other_image "
+                        + "FROM " + TABLE_MESSAGES_FTS + " f "
+                        + "JOIN " + TABLE_MESSAGES + " m ON m.rowid = f.docid "
+                        + "LEFT JOIN " + TABLE_CONVERSATIONS + " c ON c.id = m.conversation_id AND c.owner_id = ? "
+                        + "WHERE " + TABLE_MESSAGES_FTS + " MATCH ? AND f.docid IN (" + docIds + ")",
+                new String[]{currentUserId, match})) {
+            while (cursor.moveToNext()) {
+                ChatMessage chatMessage = new ChatMessage(
+                        cursor.getString(1),
+                        cursor.getString(3),
+                        cursor.getString(4),
+                        cursor.getString(5),
+                        cursor.getLong(6),
+                        currentUserId
+                );
+                results.add(new MessageSearchResult(
+                        chatMessage,
+                        cursor.getString(2),
+                        chatMessage.sent ? chatMessage.receiverId : chatMessage.senderId,
+                        cursor.getString(8),
+                        cursor.getString(9),
+                        cursor.getString(10),
+                        cursor.getString(7),
+                        scores.get(cursor.getLong(0))
+                ));
+            }
+        }
+        Collections.sort(results, (obj1, obj2) -> {
+            int compare = Double.compare(obj2.score, obj1.score);
+            if (compare != 0) {
+                return compare;
+            }
+            return Long.compare(obj2.chatMessage.timestamp, obj1.chatMessage.timestamp);
+        });
+        return results;
+    }
+
+    // Every word the user typed must match; the last one also matches as a prefix while typing.
+    // Words are lower-cased so FTS operators like OR or NEAR are taken literally.
+    static String toMatchExpression(String query) {
+        if (query == null) {
+            return null;
+        }
+        String[] words = query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+        StringBuilder match = new StringBuilder();
+        for (String word : words) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append(word);
+        }
+        if (match.length() == 0) {
+            return null;
+        }
+        return match.append('*').toString();
+    }
+
+    // Okapi BM25 over matchinfo 'pcnalx': phrase and column counts, row count, average and
+    // current column lengths, then per phrase and column the hits here, hits everywhere and
+    // the number of rows with a hit.
+    private static double rank(byte[] matchInfo) {
+        IntBuffer values = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phrases = values.get(0);
+        int columns = values.get(1);
+        long rows = values.get(2) & 0xffffffffL;
+        double score = 0;
+        for (int column = 0; column < columns; column++) {
+            double averageLength = Math.max(1, values.get(3 + column));
+            double length = values.get(3 + columns + column);
+            for (int phrase = 0; phrase < phrases; phrase++) {
+                int hitsAt = 3 + 2 * columns + 3 * (phrase * columns + column);
+                double hits = values.get(hitsAt);
+                double rowsWithHits = values.get(hitsAt + 2);
+                if (hits == 0) {
+                    continue;
+                }
+                double idf = Math.max(Math.log((rows - rowsWithHits + 0.5) / (rowsWithHits + 0.5)), 1e-6);
+                score += idf * hits * (RANK_K1 + 1)
+                        / (hits + RANK_K1 * (1 - RANK_B + RANK_B * length / averageLength));
+            }
+        }
+        return score;
+    }
+
+    // Conversations
+
+    public void saveConversations(String ownerId, List<ConversationSummary> conversations) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (ConversationSummary conversation : conversations) {
+                if (conversation.timestamp == ChatMessage.UNRESOLVED_TIMESTAMP) {
+                    continue;
+                }
+                ContentValues values = new ContentValues();
+                values.put("id", conversation.id);
+                values.put("owner_id", ownerId);
+                values.put("sender_id", conversation.senderId);
+                values.put("receiver_id", conversation.receiverId);
+                values.put("other_user_id", conversation.otherUserId);
+                values.put("other_name", conversation.otherName);
+                values.put("other_image_hash", conversation.otherImageHash);
+                values.put("other_image", conversation.otherImage);
+                values.put("last_message", conversation.lastMessage);
+                values.put("timestamp", conversation.timestamp);
+                db.insertWithOnConflict(TABLE_CONVERSATIONS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public void deleteConversation(String conversationDocumentId) {
+        getWritableDatabase().delete(TABLE_CONVERSATIONS, "id = ?", new String[]{conversationDocumentId});
+    }
+
+    public List<ConversationSummary> getConversations(String ownerId) {
+        List<ConversationSummary> conversations = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(
+                TABLE_CONVERSATIONS,
+                new String[]{"id", "sender_id", "receiver_id", "other_user_id", "other_name",
+                        "other_image_hash", "other_image", "last_message", "timestamp"},
+                "owner_id = ?",
+                new String[]{ownerId},
+                null, null,
+                "timestamp DESC")) {
+            while (cursor.moveToNext()) {
+                conversations.add(new ConversationSummary(
+                        cursor.getString(0),
+                        cursor.getString(1),
+                        cursor.getString(2),
+                        cursor.getString(3),
+                        cursor.getString(4),
+                        cursor.getString(5),
+                        cursor.getString(6),
+                        cursor.getString(7),
+                        cursor.getLong(8)
+                ));
+            }
+        }
+        return conversations;
+    }
+
+    // Users
+
+    public void saveUsers(List<User> users) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (User user : users) {
+                ContentValues values = new ContentValues();
+                values.put("id", user.id);
+                values.put("name", user.name);
+                values.put("email", user.email);
+                values.put("image_hash", user.imageHash);
+                values.put("image_placeholder", user.imagePlaceholder);
+                values.put("image", user.image);
+                values.put("token", user.token);
+                db.insertWithOnConflict(TABLE_USERS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Case-insensitive name prefix match; an empty prefix lists everyone.
+    public List<User> getUsers(String excludedUserId, String namePrefix, int limit) {
+        String escaped = namePrefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        List<User> users = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(
+                TABLE_USERS,
+                new String[]{"id", "name", "email", "image_hash", "image", "token", "image_placeholder"},
+                "id != ? AND name LIKE ? ESCAPE '\\'",
+                new String[]{excludedUserId, escaped + "%"},
+                null, null,
+                "name COLLATE NOCASE",
+                String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                User user = new User();
+                user.id = cursor.getString(0);
+                user.name = cursor.getString(1);
+                user.email = cursor.getString(2);
+                user.imageHash = cursor.getString(3);
+                user.image = cursor.getString(4);
+                user.token = cursor.getString(5);
+                user.imagePlaceholder = cursor.getString(6);
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    // Outbox
+
+    public List<OutboxEntry> getDueOutboxEntries(long now) {
+        List<OutboxEntry> entries = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT o.message_id, o.conversation_fields, o.attempts, "
+                        + "m.sender_id, m.receiver_id, m.message, m.timestamp, o.upload_uri, "
+                        + "m.image_blob_id, m.image_preview, m.image_width, m.image_height "
+                        + "FROM " + TABLE_OUTBOX + " o JOIN " + TABLE_MESSAGES + " m ON m.id = o.message_id "
+                        + "WHERE o.next_attempt_at <= ? ORDER BY m.timestamp",
+                new String[]{String.valueOf(now)})) {
+            while (cursor.moveToNext()) {
+                // Only this user's own messages are ever queued, so every entry is a sent one.
+                String senderId = cursor.getString(3);
+                OutboxEntry entry = new OutboxEntry();
+                entry.chatMessage = new ChatMessage(
+                        cursor.getString(0),
+                        senderId,
+                        cursor.getString(4),
+                        cursor.getString(5),
+                        cursor.getLong(6),
+                        senderId,
+                        imageOf(cursor, 8)
+                );
+                entry.conversationFields = cursor.getString(1);
+                entry.attempts = cursor.getInt(2);
+                entry.uploadUri = cursor.getString(7);
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    public long getNextOutboxAttemptAt() {
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT MIN(next_attempt_at) FROM " + TABLE_OUTBOX, null)) {
+            if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                return cursor.getLong(0);
+            }
+        }
+        return -1;
+    }
+
+    public void markSent(List<String> messageIds) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            values.put("pending", 0);
+            for (String messageId : messageIds) {
+                db.delete(TABLE_OUTBOX, "message_id = ?", new String[]{messageId});
+                db.update(TABLE_MESSAGES, values, "id = ?", new String[]{messageId});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // The blob is stored remotely, so the message itself can be written.
+    public void markUploaded(String messageId) {
+        ContentValues values = new ContentValues();
+        values.putNull("upload_uri");
+        getWritableDatabase().update(TABLE_OUTBOX, values, "message_id = ?", new String[]{messageId});
+    }
+
+    public void scheduleRetry(List<String> messageIds, int attempts, long nextAttemptAt) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            values.put("attempts", attempts);
+            values.put("next_attempt_at", nextAttemptAt);
+            for (String messageId : messageIds) {
+                db.update(TABLE_OUTBOX, values, "message_id = ?", new String[]{messageId});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public void clearAll() {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_MESSAGES, null, null);
+            db.delete(TABLE_CONVERSATIONS, null, null);
+            db.delete(TABLE_USERS, null, null);
+            db.delete(TABLE_OUTBOX, null, null);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.sigma_chat_v2.database;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.sigma_chat_v2.models.ChatMessage;
+import com.example.sigma_chat_v2.storage.MessageImageStore;
+import com.example.sigma_chat_v2.utilities.Constants;
+import com.example.sigma_chat_v2.utilities.ConversationId;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Write-behind queue for outgoing messages: they are persisted locally first, so the UI never waits
+// on the network, and pushed to Firestore with exponential backoff until acknowledged. An image
+// message is only written once its photo is uploaded, so no one sees a message without its image.
+public class MessageOutbox {
+
+    private static final long BASE_RETRY_DELAY_MS = 1000;
+    private static final long MAX_RETRY_DELAY_MS = 5 * 60 * 1000;
+    // Sends arriving within this window share one commit.
+    private static final long COALESCE_WINDOW_MS = 150;
+    // Firestore allows 500 writes per batch; each message costs one plus at most one per
+    // conversation.
+    private static final int MAX_MESSAGES_PER_BATCH = 240;
+
+    private static MessageOutbox instance = null;
+
+    private final ChatDatabase chatDatabase;
+    private final MessageImageStore messageImageStore;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final HashSet<String> inFlight = new HashSet<>();
+    private final Runnable flushRunnable = this::flush;
+
+    public static synchronized MessageOutbox getInstance(Context context) {
+        if (instance == null) {
+            instance = new MessageOutbox(ChatDatabase.getInstance(context), MessageImageStore.getInstance(context));
+        }
+        return instance;
+    }
+
+    private MessageOutbox(ChatDatabase chatDatabase, MessageImageStore messageImageStore) {
+        this.chatDatabase = chatDatabase;
+        this.messageImageStore = messageImageStore;
+    }
+
+    // conversationFields carries the names/avatars needed to create the conversation document,
+    // or null when the conversation already exists and only lastMessage/timestamp change.
+    public void enqueue(ChatMessage chatMessage, Map<String, Object> conversationFields) {
+        enqueue(chatMessage, conversationFields, null);
+    }
+
+    // imageSource is the picked content behind chatMessage.image; it must stay readable across
+    // restarts until the upload finishes.
+    public void enqueue(ChatMessage chatMessage, Map<String, Object> conversationFields, Uri imageSource) {
+        String fields = conversationFields == null ? null : new JSONObject(conversationFields).toString();
+        String uploadUri = imageSource == null ? null : imageSource.toString();
+        chatDatabase.runAsync(() -> {
+            chatDatabase.savePendingMessage(chatMessage, fields, uploadUri);
+            mainHandler.post(() -> scheduleFlush(COALESCE_WINDOW_MS));
+        });
+    }
+
+    private void scheduleFlush(long delay) {
+        mainHandler.removeCallbacks(flushRunnable);
+        mainHandler.postDelayed(flushRunnable, delay);
+    }
+
+    public void flush() {
+        chatDatabase.runAsync(db -> db.getDueOutboxEntries(System.currentTimeMillis()), this::send);
+    }
+
+    private void send(List<OutboxEntry> entries) {
+        List<OutboxEntry> batch = new ArrayList<>();
+        for (OutboxEntry entry : entries) {
+            if (!inFlight.add(entry.chatMessage.messageId)) {
+                continue;
+            }
+            if (entry.uploadUri != null) {
+                upload(entry);
+                continue;
+            }
+            batch.add(entry);
+            if (batch.size() == MAX_MESSAGES_PER_BATCH) {
+                write(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    // The message waits in the outbox with its upload source until the blob is stored remotely.
+    private void upload(OutboxEntry entry) {
+        String messageId = entry.chatMessage.messageId;
+        messageImageStore.upload(entry.chatMessage.image.blobId, Uri.parse(entry.uploadUri), success -> {
+            inFlight.remove(messageId);
+            if (success) {
+                chatDatabase.runAsync(() -> {
+                    chatDatabase.markUploaded(messageId);
+                    mainHandler.post(() -> scheduleFlush(0));
+                });
+                return;
+            }
+            retryLater(Collections.singletonList(messageId), entry.attempts + 1);
+        });
+    }
+
+    // Entries arrive ordered by timestamp, so within one write the last entry per conversation
+    // carries its summary. An image message is held back until its upload finishes, so newer
+    // messages may already be committed by then; a write holding one goes through a transaction
+    // that only moves the summary forward. Text-only writes stay a plain batch, which Firestore
+    // queues while offline.
+    private void write(List<OutboxEntry> entries) {
+        FirebaseFirestore database = FirebaseFirestore.getInstance();
+        LinkedHashMap<String, HashMap<String, Object>> messages = new LinkedHashMap<>();
+        LinkedHashMap<String, HashMap<String, Object>> conversations = new LinkedHashMap<>();
+        boolean hasImage = false;
+
+        for (OutboxEntry entry : entries) {
+            ChatMessage chatMessage = entry.chatMessage;
+            String conversationId = ConversationId.of(chatMessage.senderId, chatMessage.receiverId);
+
+            HashMap<String, Object> message = new HashMap<>();
+            message.put(Constants.KEY_SENDER_ID, chatMessage.senderId);
+            message.put(Constants.KEY_RECEIVER_ID, chatMessage.receiverId);
+            message.put(Constants.KEY_CONVERSATION_ID, conversationId);
+            message.put(Constants.KEY_MESSAGE, chatMessage.message);
+            message.put(Constants.KEY_TIMESTAMP, new Date(chatMessage.timestamp));
+            if (chatMessage.image != null) {
+                message.put(Constants.KEY_IMAGE_BLOB_ID, chatMessage.image.blobId);
+                message.put(Constants.KEY_IMAGE_PREVIEW, chatMessage.image.preview);
+                message.put(Constants.KEY_IMAGE_WIDTH, chatMessage.image.width);
+                message.put(Constants.KEY_IMAGE_HEIGHT, chatMessage.image.height);
+            }
+            messages.put(chatMessage.messageId, message);
+            hasImage |= chatMessage.image != null;
+
+            HashMap<String, Object> conversation = conversations.get(conversationId);
+            if (conversation == null) {
+                conversation = new HashMap<>();
+                conversation.put(Constants.KEY_CONVERSATION_ID, conversationId);
+                conversation.put(Constants.KEY_PARTICIPANTS,
+                        ConversationId.participantsOf(chatMessage.senderId, chatMessage.receiverId));
+                conversations.put(conversationId, conversation);
+            }
+            conversation.putAll(parseFields(entry.conversationFields));
+            conversation.put(Constants.KEY_LAST_MESSAGE, summaryOf(chatMessage));
+            conversation.put(Constants.KEY_TIMESTAMP, new Date(chatMessage.timestamp));
+        }
+
+        Task<?> commit = hasImage
+                ? commitIfNewer(database, messages, conversations)
+                : commitBatch(database, messages, conversations);
+        commit.addOnCompleteListener(task -> {
+            List<String> messageIds = new ArrayList<>();
+            for (OutboxEntry entry : entries) {
+                inFlight.remove(entry.chatMessage.messageId);
+                messageIds.add(entry.chatMessage.messageId);
+            }
+            if (task.isSuccessful()) {
+                chatDatabase.runAsync(() -> chatDatabase.markSent(messageIds));
+                return;
+            }
+            Log.w("MessageOutbox", "Batch of " + entries.size() + " failed, retrying", task.getException());
+            retryLater(messageIds, entries.get(0).attempts + 1);
+        });
+    }
+
+    private static Task<Void> commitBatch(FirebaseFirestore database,
+                                          Map<String, HashMap<String, Object>> messages,
+                                          Map<String, HashMap<String, Object>> conversations) {
+        WriteBatch batch = database.batch();
+        for (Map.Entry<String, HashMap<String, Object>> message : messages.entrySet()) {
+            batch.set(database.collection(Constants.KEY_COLLECTION_CHAT).document(message.getKey()), message.getValue());
+        }
+        for (Map.Entry<String, HashMap<String, Object>> conversation : conversations.entrySet()) {
+            batch.set(database.collection(Constants.KEY_COLLECTION_CONVERSATIONS).document(conversation.getKey()),
+                    conversation.getValue(), SetOptions.merge());
+        }
+        return batch.commit();
+    }
+
+    // Leaves lastMessage/timestamp alone on conversations whose summary is already as new.
+    private static Task<Void> commitIfNewer(FirebaseFirestore database,
+                                            Map<String, HashMap<String, Object>> messages,
+                                            Map<String, HashMap<String, Object>> conversations) {
+        return database.runTransaction(transaction -> {
+            LinkedHashMap<DocumentReference, HashMap<String, Object>> updates = new LinkedHashMap<>();
+            for (Map.Entry<String, HashMap<String, Object>> conversation : conversations.entrySet()) {
+                DocumentReference reference =
+                        database.collection(Constants.KEY_COLLECTION_CONVERSATIONS).document(conversation.getKey());
+                HashMap<String, Object> fields = new HashMap<>(conversation.getValue());
+                DocumentSnapshot current = transaction.get(reference);
+                Date currentTimestamp = current.getDate(Constants.KEY_TIMESTAMP);
+                if (currentTimestamp != null && !currentTimestamp.before((Date) fields.get(Constants.KEY_TIMESTAMP))) {
+                    fields.remove(Constants.KEY_LAST_MESSAGE);
+                    fields.remove(Constants.KEY_TIMESTAMP);
+                }
+                updates.put(reference, fields);
+            }
+            for (Map.Entry<String, HashMap<String, Object>> message : messages.entrySet()) {
+                transaction.set(database.collection(Constants.KEY_COLLECTION_CHAT).document(message.getKey()),
+                        message.getValue());
+            }
+            for (Map.Entry<DocumentReference, HashMap<String, Object>> update : updates.entrySet()) {
+                transaction.set(update.getKey(), update.getValue(), SetOptions.merge());
+            }
+            return null;
+        });
+    }
+
+    private void retryLater(List<String> messageIds, int attempts) {
+        long delay = Math.min(BASE_RETRY_DELAY_MS << Math.min(attempts, 16), MAX_RETRY_DELAY_MS);
+        long nextAttemptAt = System.currentTimeMillis() + delay;
+        chatDatabase.runAsync(() -> chatDatabase.scheduleRetry(messageIds, attempts, nextAttemptAt));
+        scheduleFlush(delay);
+    }
+
+    public static String summaryOf(ChatMessage chatMessage) {
+        if (chatMessage.image != null && (chatMessage.message == null || chatMessage.message.isEmpty())) {
+            return Constants.IMAGE_MESSAGE_SUMMARY;
+        }
+        return chatMessage.message;
+    }
+
+    private static HashMap<String, Object> parseFields(String fields) {
+        HashMap<String, Object> values = new HashMap<>();
+        if (fields == null) {
+            return values;
+        }
+        try {
+            JSONObject jsonObject = new JSONObject(fields);
+            Iterator<String> keys = jsonObject.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                if (!jsonObject.isNull(key)) {
+                    values.put(key, jsonObject.get(key));
+                }
+            }
+        } catch (JSONException e) {
+            Log.w("MessageOutbox", "Dropping unreadable conversation fields", e);
+        }
+        return values;
+    }
+}
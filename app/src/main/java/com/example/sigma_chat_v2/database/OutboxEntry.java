@@ -0,0 +1,11 @@
+package com.example.sigma_chat_v2.database;
+
+import com.example.sigma_chat_v2.models.ChatMessage;
+
+public class OutboxEntry {
+    public ChatMessage chatMessage;
+    public String conversationFields;
+    public int attempts;
+    // Set while the image of the message still has to be uploaded.
+    public String uploadUri;
+}
@@ -0,0 +1,156 @@
+package com.example.sigma_chat_v2.firebase;
+
+import android.util.Log;
+
+import com.example.sigma_chat_v2.utilities.Constants;
+import com.example.sigma_chat_v2.utilities.ConversationId;
+import com.example.sigma_chat_v2.utilities.PreferenceManager;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Backfills conversationId/participants on documents written before conversations were keyed by
+// ConversationId. Each client migrates the documents it is a participant of, so the work is
+// bounded.
+public class ConversationMigration {
+
+    private static final int BATCH_SIZE = 400;
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private ConversationMigration() {
+    }
+
+    public static void runIfNeeded(PreferenceManager preferenceManager) {
+        if (preferenceManager.getBoolean(Constants.KEY_CONVERSATION_MIGRATION_DONE)) {
+            return;
+        }
+        String userId = preferenceManager.getString(Constants.KEY_USER_ID);
+        if (userId == null) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                FirebaseFirestore database = FirebaseFirestore.getInstance();
+                migrateMessages(database, Constants.KEY_SENDER_ID, userId);
+                migrateMessages(database, Constants.KEY_RECEIVER_ID, userId);
+                migrateConversations(database, Constants.KEY_SENDER_ID, userId);
+                migrateConversations(database, Constants.KEY_RECEIVER_ID, userId);
+                preferenceManager.putBoolean(Constants.KEY_CONVERSATION_MIGRATION_DONE, true);
+            } catch (Exception e) {
+                Log.w("ConversationMigration", "Migration interrupted, will retry next launch", e);
+            }
+        });
+    }
+
+    private static void migrateMessages(FirebaseFirestore database, String field, String userId) throws Exception {
+        Query query = database.collection(Constants.KEY_COLLECTION_CHAT)
+                .whereEqualTo(field, userId)
+                .orderBy(FieldPath.documentId())
+                .limit(BATCH_SIZE);
+        DocumentSnapshot last = null;
+        while (true) {
+            QuerySnapshot page = Tasks.await(last == null ? query.get() : query.startAfter(last).get());
+            List<DocumentSnapshot> documents = page.getDocuments();
+            if (documents.isEmpty()) {
+                return;
+            }
+            WriteBatch batch = database.batch();
+            int writes = 0;
+            for (DocumentSnapshot documentSnapshot : documents) {
+                if (documentSnapshot.getString(Constants.KEY_CONVERSATION_ID) != null) {
+                    continue;
+                }
+                String senderId = documentSnapshot.getString(Constants.KEY_SENDER_ID);
+                String receiverId = documentSnapshot.getString(Constants.KEY_RECEIVER_ID);
+                if (senderId == null || receiverId == null) {
+                    continue;
+                }
+                batch.update(documentSnapshot.getReference(),
+                        Constants.KEY_CONVERSATION_ID, ConversationId.of(senderId, receiverId));
+                writes++;
+            }
+            if (writes > 0) {
+                Tasks.await(batch.commit());
+            }
+            if (documents.size() < BATCH_SIZE) {
+                return;
+            }
+            last = documents.get(documents.size() - 1);
+        }
+    }
+
+    // Legacy conversations have random ids; they are copied to their canonical id and the old doc
+    // removed, one transaction each. The canonical doc may already be newer, written by the outbox
+    // on another device or copied from the legacy doc of the other direction, so
+    // lastMessage/timestamp are only copied over an older summary.
+    private static void migrateConversations(FirebaseFirestore database, String field, String userId) throws Exception {
+        Query query = database.collection(Constants.KEY_COLLECTION_CONVERSATIONS)
+                .whereEqualTo(field, userId)
+                .orderBy(FieldPath.documentId())
+                .limit(BATCH_SIZE / 2);
+        DocumentSnapshot last = null;
+        while (true) {
+            QuerySnapshot page = Tasks.await(last == null ? query.get() : query.startAfter(last).get());
+            List<DocumentSnapshot> documents = page.getDocuments();
+            if (documents.isEmpty()) {
+                return;
+            }
+            for (DocumentSnapshot documentSnapshot : documents) {
+                String senderId = documentSnapshot.getString(Constants.KEY_SENDER_ID);
+                String receiverId = documentSnapshot.getString(Constants.KEY_RECEIVER_ID);
+                if (senderId == null || receiverId == null) {
+                    continue;
+                }
+                String conversationId = ConversationId.of(senderId, receiverId);
+                if (conversationId.equals(documentSnapshot.getId())
+                        && documentSnapshot.get(Constants.KEY_PARTICIPANTS) != null) {
+                    continue;
+                }
+                DocumentReference legacy = documentSnapshot.getReference();
+                DocumentReference canonical = database.collection(Constants.KEY_COLLECTION_CONVERSATIONS)
+                        .document(conversationId);
+                Tasks.await(database.runTransaction(transaction -> {
+                    DocumentSnapshot source = transaction.get(legacy);
+                    DocumentSnapshot target = transaction.get(canonical);
+                    Map<String, Object> data = source.getData();
+                    if (data == null) {
+                        // Already migrated by the other participant.
+                        return null;
+                    }
+                    data = new HashMap<>(data);
+                    Date sourceTimestamp = source.getDate(Constants.KEY_TIMESTAMP);
+                    Date targetTimestamp = target.getDate(Constants.KEY_TIMESTAMP);
+                    if (targetTimestamp != null
+                            && (sourceTimestamp == null || !sourceTimestamp.after(targetTimestamp))) {
+                        data.remove(Constants.KEY_LAST_MESSAGE);
+                        data.remove(Constants.KEY_TIMESTAMP);
+                    }
+                    data.put(Constants.KEY_CONVERSATION_ID, conversationId);
+                    data.put(Constants.KEY_PARTICIPANTS, ConversationId.participantsOf(senderId, receiverId));
+                    transaction.set(canonical, data, SetOptions.merge());
+                    if (!conversationId.equals(legacy.getId())) {
+                        transaction.delete(legacy);
+                    }
+                    return null;
+                }));
+            }
+            if (documents.size() < BATCH_SIZE / 2) {
+                return;
+            }
+            last = documents.get(documents.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.sigma_chat_v2.firebase;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ProcessLifecycleOwner;
+
+import com.example.sigma_chat_v2.utilities.MetricsRegistry;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Owns every Firestore snapshot listener in the app. Identical queries/documents share one
+// registration, ref-counted across subscribers; a subscriber bound to a LifecycleOwner is removed
+// when it is destroyed; and all registrations are detached while the app is in the background and
+// re-attached when it returns.
+//
+// Snapshots arrive on a background executor where each subscriber's parser turns them into its
+// own model; only the parsed result is posted to the main thread. Registration bookkeeping and
+// delivery happen on the main thread.
+public class ListenerRegistry implements DefaultLifecycleObserver {
+
+    // Receives every snapshot on the main thread. reset is true when value is a complete state to
+    // rebuild from rather than a delta: the first snapshot a subscriber sees, and the first one
+    // after re-attaching.
+    public interface SnapshotListener<T> {
+        void onSnapshot(T value, boolean reset);
+    }
+
+    // Runs on the background executor, in snapshot order.
+    public interface SnapshotParser<T, R> {
+        R parse(T value, boolean reset);
+    }
+
+    public interface Subscription {
+        void remove();
+    }
+
+    private interface Attacher<T> {
+        ListenerRegistration attach(Executor executor, EventListener<T> listener);
+    }
+
+    // Keeps an unused registration around briefly so a screen that is recreated or revisited
+    // right away does not pay for a fresh listen.
+    private static final long LINGER_MS = 5000;
+    private static final int RATE_WINDOW_SECONDS = 10;
+
+    // Single thread, so snapshots of one listener are parsed and posted in order.
+    private static final ExecutorService snapshotExecutor = Executors.newSingleThreadExecutor();
+
+    private static ListenerRegistry instance = null;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final HashMap<Object, Entry<?>> entries = new HashMap<>();
+    private final long[] callbackBuckets = new long[RATE_WINDOW_SECONDS];
+    private final long[] callbackBucketSeconds = new long[RATE_WINDOW_SECONDS];
+    private boolean backgrounded = false;
+
+    private static class Subscriber<T, R> {
+        final SnapshotParser<T, R> parser;
+        final SnapshotListener<R> listener;
+        volatile boolean active = true;
+
+        Subscriber(SnapshotParser<T, R> parser, SnapshotListener<R> listener) {
+            this.parser = parser;
+            this.listener = listener;
+        }
+    }
+
+    private class Entry<T> {
+        final Object key;
+        final Attacher<T> attacher;
+        final CopyOnWriteArrayList<Subscriber<T, ?>> subscribers = new CopyOnWriteArrayList<>();
+        // Guarded by itself; touched from both threads.
+        final HashSet<Subscriber<T, ?>> awaitingReset = new HashSet<>();
+        ListenerRegistration registration;
+        volatile T lastValue;
+        volatile int generation = 0;
+        final Runnable detachRunnable = this::release;
+
+        Entry(Object key, Attacher<T> attacher) {
+            this.key = key;
+            this.attacher = attacher;
+        }
+
+        void attach() {
+            if (registration != null) {
+                return;
+            }
+            int attachedGeneration = ++generation;
+            lastValue = null;
+            synchronized (awaitingReset) {
+                awaitingReset.clear();
+                awaitingReset.addAll(subscribers);
+            }
+            registration = attacher.attach(snapshotExecutor, (value, error) -> onEvent(attachedGeneration, value, error));
+        }
+
+        void detach() {
+            if (registration != null) {
+                registration.remove();
+                registration = null;
+                generation++;
+            }
+        }
+
+        void release() {
+            if (subscribers.isEmpty()) {
+                detach();
+                entries.remove(key);
+            }
+        }
+
+        // Background thread.
+        void onEvent(int eventGeneration, T value, Exception error) {
+            if (eventGeneration != generation) {
+                return;
+            }
+            if (error != null) {
+                // Firestore ends a listener after an error; attach again on the next foreground.
+                Log.w("ListenerRegistry", "Listener failed for " + key, error);
+                handler.post(() -> {
+                    if (eventGeneration == generation) {
+                        registration = null;
+                    }
+                });
+                return;
+            }
+            if (value == null) {
+                return;
+            }
+            lastValue = value;
+            for (Subscriber<T, ?> subscriber : subscribers) {
+                boolean reset;
+                synchronized (awaitingReset) {
+                    reset = awaitingReset.remove(subscriber);
+                }
+                parseAndPost(subscriber, value, reset);
+            }
+        }
+
+        void add(Subscriber<T, ?> subscriber) {
+            handler.removeCallbacks(detachRunnable);
+            subscribers.add(subscriber);
+            synchronized (awaitingReset) {
+                awaitingReset.add(subscriber);
+            }
+            if (registration != null && lastValue != null) {
+                // Late joiner: replay the current state to it alone, unless a newer snapshot
+                // reaches it first.
+                snapshotExecutor.execute(() -> {
+                    T value = lastValue;
+                    boolean replay;
+                    synchronized (awaitingReset) {
+                        replay = value != null && awaitingReset.remove(subscriber);
+                    }
+                    if (replay) {
+                        parseAndPost(subscriber, value, true);
+                    }
+                });
+            }
+            if (!backgrounded) {
+                attach();
+            }
+        }
+
+        void remove(Subscriber<T, ?> subscriber) {
+            subscriber.active = false;
+            subscribers.remove(subscriber);
+            synchronized (awaitingReset) {
+                awaitingReset.remove(subscriber);
+            }
+            if (subscribers.isEmpty()) {
+                handler.postDelayed(detachRunnable, LINGER_MS);
+            }
+        }
+    }
+
+    public static synchronized ListenerRegistry getInstance() {
+        if (instance == null) {
+            instance = new ListenerRegistry();
+        }
+        return instance;
+    }
+
+    private ListenerRegistry() {
+    }
+
+    public static Executor getBackgroundExecutor() {
+        return snapshotExecutor;
+    }
+
+    public void start() {
+        ProcessLifecycleOwner.get().getLifecycle().addObserver(this);
+    }
+
+    public Subscription listen(LifecycleOwner owner, Query query, SnapshotListener<QuerySnapshot> listener) {
+        return listen(owner, query, (value, reset) -> value, listener);
+    }
+
+    public <R> Subscription listen(LifecycleOwner owner, Query query,
+                                   SnapshotParser<QuerySnapshot, R> parser, SnapshotListener<R> listener) {
+        return subscribe(owner, query, query::addSnapshotListener, new Subscriber<>(parser, listener));
+    }
+
+    public Subscription listen(LifecycleOwner owner, DocumentReference document,
+                               SnapshotListener<DocumentSnapshot> listener) {
+        return listen(owner, document, (value, reset) -> value, listener);
+    }
+
+    public <R> Subscription listen(LifecycleOwner owner, DocumentReference document,
+                                   SnapshotParser<DocumentSnapshot, R> parser, SnapshotListener<R> listener) {
+        return subscribe(owner, document, document::addSnapshotListener, new Subscriber<>(parser, listener));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Subscription subscribe(LifecycleOwner owner, Object key, Attacher<T> attacher,
+                                       Subscriber<T, ?> subscriber) {
+        Entry<T> entry = (Entry<T>) entries.get(key);
+        if (entry == null) {
+            entry = new Entry<>(key, attacher);
+            entries.put(key, entry);
+        }
+        Entry<T> subscribed = entry;
+        subscribed.add(subscriber);
+
+        DefaultLifecycleObserver[] ownerObserver = {null};
+        Subscription subscription = () -> {
+            if (!subscriber.active) {
+                return;
+            }
+            subscribed.remove(subscriber);
+            if (ownerObserver[0] != null) {
+                owner.getLifecycle().removeObserver(ownerObserver[0]);
+            }
+        };
+        if (owner != null) {
+            ownerObserver[0] = new DefaultLifecycleObserver() {
+                @Override
+                public void onDestroy(@NonNull LifecycleOwner lifecycleOwner) {
+                    subscription.remove();
+                }
+            };
+            owner.getLifecycle().addObserver(ownerObserver[0]);
+        }
+        return subscription;
+    }
+
+    @Override
+    public void onStart(@NonNull LifecycleOwner owner) {
+        backgrounded = false;
+        for (Entry<?> entry : entries.values()) {
+            if (!entry.subscribers.isEmpty()) {
+                entry.attach();
+            }
+        }
+    }
+
+    @Override
+    public void onStop(@NonNull LifecycleOwner owner) {
+        backgrounded = true;
+        for (Entry<?> entry : entries.values()) {
+            entry.detach();
+        }
+    }
+
+    // Background thread.
+    private <T, R> void parseAndPost(Subscriber<T, R> subscriber, T value, boolean reset) {
+        if (!subscriber.active) {
+            return;
+        }
+        Trace.beginSection("ListenerRegistry.parse");
+        R parsed;
+        try {
+            parsed = subscriber.parser.parse(value, reset);
+        } finally {
+            Trace.endSection();
+        }
+        handler.post(() -> {
+            if (subscriber.active) {
+                countCallback();
+                subscriber.listener.onSnapshot(parsed, reset);
+            }
+        });
+    }
+
+    private void countCallback() {
+        long second = SystemClock.elapsedRealtime() / 1000;
+        int bucket = (int) (second % RATE_WINDOW_SECONDS);
+        if (callbackBucketSeconds[bucket] != second) {
+            callbackBucketSeconds[bucket] = second;
+            callbackBuckets[bucket] = 0;
+        }
+        callbackBuckets[bucket]++;
+        MetricsRegistry.getInstance().increment("listeners.callbacks");
+    }
+
+    // Diagnostics
+
+    public int getActiveListenerCount() {
+        int count = 0;
+        for (Entry<?> entry : entries.values()) {
+            if (entry.registration != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getSubscriberCount() {
+        int count = 0;
+        for (Entry<?> entry : entries.values()) {
+            count += entry.subscribers.size();
+        }
+        return count;
+    }
+
+    // Average over the last RATE_WINDOW_SECONDS seconds.
+    public double getCallbacksPerSecond() {
+        long now = SystemClock.elapsedRealtime() / 1000;
+        long total = 0;
+        for (int i = 0; i < RATE_WINDOW_SECONDS; i++) {
+            if (now - callbackBucketSeconds[i] < RATE_WINDOW_SECONDS) {
+                total += callbackBuckets[i];
+            }
+        }
+        return (double) total / RATE_WINDOW_SECONDS;
+    }
+}
@@ -0,0 +1,358 @@
+package com.example.sigma_chat_v2.firebase;
+
+import com.example.sigma_chat_v2.database.ChatDatabase;
+import com.example.sigma_chat_v2.models.ChatMessage;
+import com.example.sigma_chat_v2.utilities.Constants;
+import com.example.sigma_chat_v2.utilities.SortedMessageList;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+public class MessagePager {
+
+    public interface MessageParser {
+        ChatMessage parse(DocumentSnapshot documentSnapshot);
+    }
+
+    public interface Callback {
+        void onHistoryLoaded();
+        void onLiveMessageAdded(int position);
+        void onJumpedTo(int position);
+    }
+
+    public static final int PAGE_SIZE = 30;
+    public static final int MAX_PAGES_IN_MEMORY = 5;
+
+    private final FirebaseFirestore database;
+    private final ChatDatabase chatDatabase;
+    private final String conversationId;
+    private final SortedMessageList messages;
+    private final MessageParser parser;
+    private final Callback callback;
+
+    private ListenerRegistry.Subscription liveSubscription;
+    private List<ChatMessage> latestLiveMessages = new ArrayList<>();
+    private boolean historyLoaded = false;
+    private boolean loadingOlder = false;
+    private boolean loadingNewer = false;
+    private boolean hasOlder = true;
+    private boolean atLiveEdge = true;
+    private int jumpGeneration = 0;
+
+    public MessagePager(FirebaseFirestore database, ChatDatabase chatDatabase, String conversationId,
+                        SortedMessageList messages, MessageParser parser, Callback callback) {
+        this.database = database;
+        this.chatDatabase = chatDatabase;
+        this.conversationId = conversationId;
+        this.messages = messages;
+        this.parser = parser;
+        this.callback = callback;
+    }
+
+    private Query conversationQuery() {
+        return database.collection(Constants.KEY_COLLECTION_CHAT)
+                .whereEqualTo(Constants.KEY_CONVERSATION_ID, conversationId);
+    }
+
+    private Query ascending() {
+        return conversationQuery()
+                .orderBy(Constants.KEY_TIMESTAMP, Query.Direction.ASCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.ASCENDING);
+    }
+
+    private Query descending() {
+        return conversationQuery()
+                .orderBy(Constants.KEY_TIMESTAMP, Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING);
+    }
+
+    public void start() {
+        if (liveSubscription != null) {
+            return;
+        }
+        liveSubscription = ListenerRegistry.getInstance().listen(
+                null,
+                ascending().limitToLast(PAGE_SIZE),
+                this::parseLiveSnapshot,
+                this::onLiveSnapshot
+        );
+    }
+
+    public void stop() {
+        if (liveSubscription != null) {
+            liveSubscription.remove();
+            liveSubscription = null;
+        }
+    }
+
+    public boolean isAtLiveEdge() {
+        return atLiveEdge;
+    }
+
+    public boolean hasOlder() {
+        return hasOlder;
+    }
+
+    private static class LiveChange {
+        DocumentChange.Type type;
+        ChatMessage message;
+        int oldIndex;
+    }
+
+    // A live snapshot parsed off the main thread: the whole limitToLast window plus its changes.
+    private static class LiveSnapshot {
+        List<ChatMessage> window;
+        List<LiveChange> changes = new ArrayList<>();
+        boolean addedAtEnd = false;
+    }
+
+    // Background thread.
+    private LiveSnapshot parseLiveSnapshot(QuerySnapshot value, boolean reset) {
+        LiveSnapshot liveSnapshot = new LiveSnapshot();
+        liveSnapshot.window = parseAll(value.getDocuments());
+        if (reset) {
+            chatDatabase.runAsync(() -> chatDatabase.saveMessages(liveSnapshot.window));
+            return liveSnapshot;
+        }
+        // Every delta the live listener sees lands in the local store, even while the window is
+        // scrolled away.
+        List<ChatMessage> changed = new ArrayList<>();
+        for (DocumentChange documentChange : value.getDocumentChanges()) {
+            LiveChange liveChange = new LiveChange();
+            liveChange.type = documentChange.getType();
+            liveChange.oldIndex = documentChange.getOldIndex();
+            if (liveChange.type == DocumentChange.Type.REMOVED) {
+                liveChange.message = parser.parse(documentChange.getDocument());
+            } else {
+                liveChange.message = liveSnapshot.window.get(documentChange.getNewIndex());
+                changed.add(liveChange.message);
+            }
+            if (liveChange.type == DocumentChange.Type.ADDED && documentChange.getNewIndex() == value.size() - 1) {
+                liveSnapshot.addedAtEnd = true;
+            }
+            liveSnapshot.changes.add(liveChange);
+        }
+        if (!changed.isEmpty()) {
+            chatDatabase.runAsync(() -> chatDatabase.saveMessages(changed));
+        }
+        return liveSnapshot;
+    }
+
+    private void onLiveSnapshot(LiveSnapshot value, boolean reset) {
+        latestLiveMessages = value.window;
+        if (!historyLoaded) {
+            historyLoaded = true;
+            hasOlder = value.window.size() >= PAGE_SIZE;
+            // The window may already hold messages from the local cache.
+            mergeLiveWindow(value.window);
+            callback.onHistoryLoaded();
+            return;
+        }
+        if (reset) {
+            // Re-attached after the app was in the background: merge the current live window.
+            if (atLiveEdge) {
+                mergeLiveWindow(value.window);
+                trimOldest();
+            }
+            return;
+        }
+        if (!atLiveEdge) {
+            return;
+        }
+        for (LiveChange liveChange : value.changes) {
+            switch (liveChange.type) {
+                case ADDED:
+                    int position = messages.insert(liveChange.message);
+                    callback.onLiveMessageAdded(position);
+                    break;
+                case MODIFIED:
+                    messages.update(liveChange.message);
+                    break;
+                case REMOVED:
+                    // The oldest document sliding out of the limitToLast window because a newer one
+                    // arrived is not a deletion; it stays in our window.
+                    if (!(value.addedAtEnd && liveChange.oldIndex == 0)) {
+                        messages.remove(liveChange.message.messageId);
+                    }
+                    break;
+            }
+        }
+        trimOldest();
+    }
+
+    // Brings the held messages in line with a complete live window. When the window does not reach
+    // back to them, more than a page arrived meanwhile and they are replaced rather than left with
+    // a gap; otherwise held messages within its range that it lacks were deleted. Held messages
+    // newer than the window are sends still in the outbox and are kept.
+    private void mergeLiveWindow(List<ChatMessage> window) {
+        if (window.isEmpty()) {
+            return;
+        }
+        ChatMessage oldestLive = window.get(0);
+        ChatMessage newestLive = window.get(window.size() - 1);
+        boolean wholeConversation = window.size() < PAGE_SIZE;
+        if (!wholeConversation && !messages.isEmpty()
+                && SortedMessageList.ORDER.compare(messages.last(), oldestLive) < 0) {
+            messages.clear();
+            messages.insertAll(window);
+            hasOlder = true;
+            return;
+        }
+        HashSet<String> liveIds = new HashSet<>();
+        for (ChatMessage chatMessage : window) {
+            liveIds.add(chatMessage.messageId);
+        }
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            ChatMessage held = messages.get(i);
+            if (SortedMessageList.ORDER.compare(held, newestLive) > 0) {
+                continue;
+            }
+            if (!wholeConversation && SortedMessageList.ORDER.compare(held, oldestLive) < 0) {
+                break;
+            }
+            if (!liveIds.contains(held.messageId)) {
+                messages.remove(held.messageId);
+            }
+        }
+        messages.insertAll(window);
+        if (wholeConversation) {
+            hasOlder = false;
+        }
+    }
+
+    // Parses and persists a fetched page on the background executor; the result is applied on the
+    // main thread.
+    private Task<List<ChatMessage>> fetchPage(Query query, boolean reverse) {
+        return query.get().continueWith(ListenerRegistry.getBackgroundExecutor(), task -> {
+            List<DocumentSnapshot> documents = new ArrayList<>(task.getResult().getDocuments());
+            if (reverse) {
+                Collections.reverse(documents);
+            }
+            List<ChatMessage> page = parseAll(documents);
+            chatDatabase.runAsync(() -> chatDatabase.saveMessages(page));
+            return page;
+        });
+    }
+
+    public void loadOlder() {
+        if (!historyLoaded || loadingOlder || !hasOlder || messages.isEmpty()) {
+            return;
+        }
+        loadingOlder = true;
+        ChatMessage oldest = messages.first();
+        fetchPage(descending().startAfter(new Date(oldest.timestamp), oldest.messageId).limit(PAGE_SIZE), true)
+                .addOnCompleteListener(task -> {
+                    loadingOlder = false;
+                    if (!task.isSuccessful() || task.getResult() == null) {
+                        return;
+                    }
+                    List<ChatMessage> page = task.getResult();
+                    hasOlder = page.size() >= PAGE_SIZE;
+                    messages.insertAll(page);
+                    trimNewest();
+                });
+    }
+
+    public void loadNewer() {
+        if (!historyLoaded || loadingNewer || atLiveEdge || messages.isEmpty()) {
+            return;
+        }
+        loadingNewer = true;
+        ChatMessage newest = messages.last();
+        fetchPage(ascending().startAfter(new Date(newest.timestamp), newest.messageId).limit(PAGE_SIZE), false)
+                .addOnCompleteListener(task -> {
+                    loadingNewer = false;
+                    if (!task.isSuccessful() || task.getResult() == null) {
+                        return;
+                    }
+                    List<ChatMessage> page = task.getResult();
+                    messages.insertAll(page);
+                    if (page.size() < PAGE_SIZE) {
+                        atLiveEdge = true;
+                        // Anything the live listener delivered while we were away from the edge.
+                        messages.insertAll(latestLiveMessages);
+                    }
+                    trimOldest();
+                });
+    }
+
+    // Replaces the window with the pages just before and after the given message, e.g. for a
+    // search result far back in history, and reports its position once it is in place.
+    public void jumpTo(String messageId, long timestamp) {
+        int position = messages.indexOf(messageId);
+        if (position >= 0) {
+            callback.onJumpedTo(position);
+            return;
+        }
+        int generation = ++jumpGeneration;
+        Date date = new Date(timestamp);
+        Task<List<ChatMessage>> before = fetchPage(descending().startAt(date, messageId).limit(PAGE_SIZE), true);
+        Task<List<ChatMessage>> after = fetchPage(ascending().startAfter(date, messageId).limit(PAGE_SIZE), false);
+        Tasks.whenAllComplete(before, after).addOnCompleteListener(task -> {
+            if (generation != jumpGeneration || !before.isSuccessful() || !after.isSuccessful()) {
+                return;
+            }
+            messages.clear();
+            hasOlder = before.getResult().size() >= PAGE_SIZE;
+            atLiveEdge = after.getResult().size() < PAGE_SIZE;
+            messages.insertAll(before.getResult());
+            messages.insertAll(after.getResult());
+            if (atLiveEdge) {
+                messages.insertAll(latestLiveMessages);
+            }
+            if (!historyLoaded) {
+                historyLoaded = true;
+                callback.onHistoryLoaded();
+            }
+            callback.onJumpedTo(messages.indexOf(messageId));
+        });
+    }
+
+    public void jumpToLatest() {
+        jumpGeneration++;
+        if (atLiveEdge) {
+            return;
+        }
+        messages.clear();
+        atLiveEdge = true;
+        hasOlder = latestLiveMessages.size() >= PAGE_SIZE;
+        messages.insertAll(latestLiveMessages);
+    }
+
+    private List<ChatMessage> parseAll(List<DocumentSnapshot> documents) {
+        List<ChatMessage> parsed = new ArrayList<>(documents.size());
+        for (DocumentSnapshot documentSnapshot : documents) {
+            parsed.add(parser.parse(documentSnapshot));
+        }
+        return parsed;
+    }
+
+    private void trimNewest() {
+        int overflow = messages.size() - PAGE_SIZE * MAX_PAGES_IN_MEMORY;
+        if (overflow <= 0) {
+            return;
+        }
+        messages.removeRange(messages.size() - overflow, overflow);
+        atLiveEdge = false;
+    }
+
+    private void trimOldest() {
+        int overflow = messages.size() - PAGE_SIZE * MAX_PAGES_IN_MEMORY;
+        if (overflow <= 0) {
+            return;
+        }
+        messages.removeRange(0, overflow);
+        hasOlder = true;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.sigma_chat_v2.firebase;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.ForegroundInfo;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.OutOfQuotaPolicy;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.sigma_chat_v2.R;
+import com.example.sigma_chat_v2.database.ChatDatabase;
+import com.example.sigma_chat_v2.models.ChatMessage;
+import com.example.sigma_chat_v2.repositories.MessageRepository;
+import com.example.sigma_chat_v2.utilities.Constants;
+import com.example.sigma_chat_v2.utilities.ConversationId;
+import com.example.sigma_chat_v2.utilities.NotificationEngine;
+import com.example.sigma_chat_v2.utilities.PreferenceManager;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Started by a push: fetches only the messages of that conversation newer than the newest one
+// stored, at most one page, into the database, so opening the chat from the notification renders
+// from cache while the live listener is still connecting. One query, bounded by
+// FETCH_TIMEOUT_SECONDS.
+public class MessagePrefetchWorker extends Worker {
+
+    private static final String KEY_PREFETCH_CONVERSATION_ID = "conversationId";
+    private static final long FETCH_TIMEOUT_SECONDS = 20;
+    private static final int ID_PREFETCH_NOTIFICATION = 2;
+
+    public static void enqueue(Context context, String senderId) {
+        String currentUserId = new PreferenceManager(context).getString(Constants.KEY_USER_ID);
+        if (currentUserId == null) {
+            return;
+        }
+        String conversationId = ConversationId.of(currentUserId, senderId);
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(MessagePrefetchWorker.class)
+                .setExpedited(OutOfQuotaPolicy.RUN_AS_NON_EXPEDITED_WORK_REQUEST)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setInputData(new Data.Builder()
+                        .putString(KEY_PREFETCH_CONVERSATION_ID, conversationId)
+                        .build())
+                .build();
+        // A push arriving mid-fetch queues one more delta behind it rather than restarting it.
+        WorkManager.getInstance(context).enqueueUniqueWork(
+                "prefetch:" + conversationId, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+
+    public MessagePrefetchWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String conversationId = getInputData().getString(KEY_PREFETCH_CONVERSATION_ID);
+        String currentUserId = new PreferenceManager(getApplicationContext()).getString(Constants.KEY_USER_ID);
+        if (conversationId == null || currentUserId == null) {
+            return Result.success();
+        }
+        ChatDatabase chatDatabase = ChatDatabase.getInstance(getApplicationContext());
+        long latest = chatDatabase.getLatestTimestamp(conversationId);
+        Query query = FirebaseFirestore.getInstance()
+                .collection(Constants.KEY_COLLECTION_CHAT)
+                .whereEqualTo(Constants.KEY_CONVERSATION_ID, conversationId);
+        if (latest >= 0) {
+            query = query.whereGreaterThan(Constants.KEY_TIMESTAMP, new Date(latest));
+        }
+        query = query.orderBy(Constants.KEY_TIMESTAMP, Query.Direction.ASCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.ASCENDING)
+                .limitToLast(MessagePager.PAGE_SIZE);
+        try {
+            QuerySnapshot snapshot = Tasks.await(query.get(), FETCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            List<ChatMessage> chatMessages = new ArrayList<>();
+            for (DocumentSnapshot documentSnapshot : snapshot.getDocuments()) {
+                chatMessages.add(MessageRepository.toChatMessage(documentSnapshot, currentUserId));
+            }
+            chatDatabase.saveMessages(chatMessages);
+            return Result.success();
+        } catch (TimeoutException e) {
+            // Not worth retrying: the chat fetches it anyway once opened.
+            Log.w("MessagePrefetchWorker", "Prefetch of " + conversationId + " timed out");
+            return Result.failure();
+        } catch (Exception e) {
+            Log.w("MessagePrefetchWorker", "Prefetch of " + conversationId + " failed", e);
+            return getRunAttemptCount() < 2 ? Result.retry() : Result.failure();
+        }
+    }
+
+    // Expedited work runs as a foreground service before API 31, which needs a notification.
+    @NonNull
+    @Override
+    public ForegroundInfo getForegroundInfo() {
+        return new ForegroundInfo(ID_PREFETCH_NOTIFICATION,
+                new NotificationCompat.Builder(getApplicationContext(), NotificationEngine.CHANNEL_SYNC)
+                        .setSmallIcon(R.drawable.ic_notification)
+                        .setContentTitle(getApplicationContext().getString(R.string.syncing_messages))
+                        .setPriority(NotificationCompat.PRIORITY_MIN)
+                        .setSilent(true)
+                        .build());
+    }
+}
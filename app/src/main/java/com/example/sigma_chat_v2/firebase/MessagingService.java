@@ -1,27 +1,14 @@
 package com.example.sigma_chat_v2.firebase;
 
 
-import android.app.Notification;
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
-import android.app.PendingIntent;
-import android.content.Intent;
-import android.os.Build;
-import android.provider.Telephony;
-
 import androidx.annotation.NonNull;
-import androidx.core.app.NotificationCompat;
-import androidx.core.app.NotificationManagerCompat;
 
-import com.example.sigma_chat_v2.R;
-import com.example.sigma_chat_v2.activities.ChatActivity;
-import com.example.sigma_chat_v2.models.User;
 import com.example.sigma_chat_v2.utilities.Constants;
+import com.example.sigma_chat_v2.utilities.NotificationEngine;
 import com.google.firebase.messaging.FirebaseMessagingService;
 import com.google.firebase.messaging.RemoteMessage;
 
-import java.util.Objects;
-import java.util.Random;
+import java.util.Map;
 
 public class MessagingService extends FirebaseMessagingService {
 
@@ -33,41 +20,19 @@ public class MessagingService extends FirebaseMessagingService {
     @Override
     public void onMessageReceived(@NonNull RemoteMessage remoteMessage) {
         super.onMessageReceived(remoteMessage);
-        User user = new User();
-        user.id = remoteMessage.getData().get(Constants.KEY_USER_ID);
-        user.name = remoteMessage.getData().get(Constants.KEY_NAME);
-        user.token = remoteMessage.getData().get(Constants.KEY_FCM_TOKEN);
-
-        int notificationId = new Random().nextInt();
-        String channelId = "chat_message";
-        Intent intent = new Intent(this, ChatActivity.class);
-        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
-        intent.putExtra(Constants.KEY_USER, user);
-        PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, intent, PendingIntent.FLAG_IMMUTABLE);
-
-
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, channelId);
-        builder.setSmallIcon(R.drawable.ic_notification);
-        builder.setContentTitle(user.name);
-        builder.setContentTitle(remoteMessage.getData().get(Constants.KEY_MESSAGE));
-        builder.setStyle(new NotificationCompat.BigTextStyle().bigText(
-                remoteMessage.getData().get(Constants.KEY_MESSAGE)
-        ));
-        builder.setPriority(NotificationCompat.PRIORITY_DEFAULT);
-        builder.setContentIntent(pendingIntent);
-        builder.setAutoCancel(true);
-
-        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.O){
-            CharSequence channelName = "Chat Message";
-            String channelDescription = "Saya admin kau member";
-            int importance = NotificationManager.IMPORTANCE_DEFAULT;
-            NotificationChannel channel = new NotificationChannel(channelId, channelName, importance);
-            channel.setDescription(channelDescription);
-            NotificationManager notificationManager = getSystemService(NotificationManager.class);
-            notificationManager.createNotificationChannel(channel);
+        Map<String, String> data = remoteMessage.getData();
+        String senderId = data.get(Constants.KEY_USER_ID);
+        if (senderId == null) {
+            return;
         }
-
-        NotificationManagerCompat notificationManagerCompat = NotificationManagerCompat.from(this);
-        notificationManagerCompat.notify(notificationId, builder.build());
+        NotificationEngine.getInstance(getApplicationContext()).onMessage(
+                senderId,
+                data.get(Constants.KEY_NAME),
+                data.get(Constants.KEY_FCM_TOKEN),
+                data.get(Constants.KEY_MESSAGE)
+        );
+        // Fetch the new messages now, so the chat opened from the notification renders from the
+        // cache.
+        MessagePrefetchWorker.enqueue(getApplicationContext(), senderId);
     }
 }
@@ -0,0 +1,143 @@
+package com.example.sigma_chat_v2.firebase;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ProcessLifecycleOwner;
+
+import com.example.sigma_chat_v2.utilities.Constants;
+import com.example.sigma_chat_v2.utilities.PreferenceManager;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.Date;
+import java.util.HashMap;
+
+// Publishes the signed-in user's availability from the process lifecycle instead of per activity,
+// so moving between screens costs no writes. Transitions are debounced, a write only happens when
+// the value differs from the last one written, and lastSeen is refreshed by a heartbeat while in
+// the foreground so readers can discard an "online" left behind by a killed process.
+public class PresenceManager implements DefaultLifecycleObserver {
+
+    private static final long DEBOUNCE_MS = 2000;
+    private static final long HEARTBEAT_INTERVAL_MS = 60 * 1000;
+    // Readers treat an online flag older than this as offline.
+    public static final long STALE_AFTER_MS = 3 * HEARTBEAT_INTERVAL_MS;
+
+    private static final int UNKNOWN = -1;
+
+    private static PresenceManager instance = null;
+
+    private final PreferenceManager preferenceManager;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private boolean foreground = false;
+    private String writtenUserId = null;
+    private int writtenAvailability = UNKNOWN;
+
+    private final Runnable publishRunnable = this::publish;
+    private final Runnable heartbeatRunnable = new Runnable() {
+        @Override
+        public void run() {
+            heartbeat();
+            handler.postDelayed(this, HEARTBEAT_INTERVAL_MS);
+        }
+    };
+
+    public static synchronized PresenceManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new PresenceManager(new PreferenceManager(context.getApplicationContext()));
+        }
+        return instance;
+    }
+
+    private PresenceManager(PreferenceManager preferenceManager) {
+        this.preferenceManager = preferenceManager;
+    }
+
+    public void start() {
+        ProcessLifecycleOwner.get().getLifecycle().addObserver(this);
+    }
+
+    public static boolean isOnline(Long availability, Date lastSeen) {
+        if (availability == null || availability != 1) {
+            return false;
+        }
+        // Documents written before lastSeen existed only have the flag.
+        return lastSeen == null || System.currentTimeMillis() - lastSeen.getTime() < STALE_AFTER_MS;
+    }
+
+    @Override
+    public void onStart(@NonNull LifecycleOwner owner) {
+        foreground = true;
+        schedulePublish();
+        handler.removeCallbacks(heartbeatRunnable);
+        handler.postDelayed(heartbeatRunnable, HEARTBEAT_INTERVAL_MS);
+    }
+
+    @Override
+    public void onStop(@NonNull LifecycleOwner owner) {
+        foreground = false;
+        handler.removeCallbacks(heartbeatRunnable);
+        schedulePublish();
+    }
+
+    // Called after sign-in, when the process was already in the foreground without a user.
+    public void refresh() {
+        schedulePublish();
+    }
+
+    // Called on sign-out; the caller writes availability 0 together with its own cleanup.
+    public void reset() {
+        handler.removeCallbacks(publishRunnable);
+        writtenUserId = null;
+        writtenAvailability = UNKNOWN;
+    }
+
+    private void schedulePublish() {
+        handler.removeCallbacks(publishRunnable);
+        handler.postDelayed(publishRunnable, DEBOUNCE_MS);
+    }
+
+    private void publish() {
+        String userId = preferenceManager.getString(Constants.KEY_USER_ID);
+        if (userId == null) {
+            return;
+        }
+        int availability = foreground ? 1 : 0;
+        if (userId.equals(writtenUserId) && availability == writtenAvailability) {
+            return;
+        }
+        HashMap<String, Object> updates = new HashMap<>();
+        updates.put(Constants.KEY_AVAILABILITY, availability);
+        updates.put(Constants.KEY_LAST_SEEN, FieldValue.serverTimestamp());
+        write(userId, updates, availability);
+    }
+
+    private void heartbeat() {
+        String userId = preferenceManager.getString(Constants.KEY_USER_ID);
+        if (userId == null || !userId.equals(writtenUserId) || writtenAvailability != 1) {
+            return;
+        }
+        HashMap<String, Object> updates = new HashMap<>();
+        updates.put(Constants.KEY_LAST_SEEN, FieldValue.serverTimestamp());
+        write(userId, updates, writtenAvailability);
+    }
+
+    private void write(String userId, HashMap<String, Object> updates, int availability) {
+        writtenUserId = userId;
+        writtenAvailability = availability;
+        FirebaseFirestore.getInstance()
+                .collection(Constants.KEY_COLLECTION_USERS)
+                .document(userId)
+                .update(updates)
+                .addOnFailureListener(e -> {
+                    if (userId.equals(writtenUserId)) {
+                        writtenAvailability = UNKNOWN;
+                    }
+                });
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.sigma_chat_v2.firebase;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Base64;
+import android.util.Log;
+
+import com.example.sigma_chat_v2.utilities.AvatarStore;
+import com.example.sigma_chat_v2.utilities.Constants;
+import com.example.sigma_chat_v2.utilities.PreferenceManager;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Lightweight mirror of every user in the directory collection: name, normalized name, email,
+// avatar hash and avatar placeholder. The Android SDK cannot project fields, so the user list pages
+// through these small documents instead of the user documents with their passwords, tokens and
+// legacy image blobs.
+public class UserDirectory {
+
+    private static final ExecutorService migrationExecutor = Executors.newSingleThreadExecutor();
+
+    private UserDirectory() {
+    }
+
+    // Lower case without diacritics, so accented names are found by their plain spelling.
+    public static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(name.trim(), Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{Mn}+", "").toLowerCase(Locale.ROOT);
+    }
+
+    public static HashMap<String, Object> entryOf(String name, String email, String imageHash,
+                                                  String imagePlaceholder) {
+        HashMap<String, Object> entry = new HashMap<>();
+        entry.put(Constants.KEY_NAME, name);
+        entry.put(Constants.KEY_NAME_LOWER, normalize(name));
+        entry.put(Constants.KEY_EMAIL, email);
+        entry.put(Constants.KEY_IMAGE_HASH, imageHash);
+        entry.put(Constants.KEY_IMAGE_PLACEHOLDER, imagePlaceholder);
+        return entry;
+    }
+
+    public static DocumentReference entryFor(FirebaseFirestore database, String userId) {
+        return database.collection(Constants.KEY_COLLECTION_DIRECTORY).document(userId);
+    }
+
+    // Accounts created before the directory existed publish their own entry on the next launch. A
+    // legacy Base64 avatar is re-encoded into the avatar variants on the way, since the entry only
+    // carries hashes.
+    public static void publishIfNeeded(Context context, PreferenceManager preferenceManager) {
+        if (preferenceManager.getBoolean(Constants.KEY_DIRECTORY_PUBLISHED)) {
+            return;
+        }
+        String userId = preferenceManager.getString(Constants.KEY_USER_ID);
+        if (userId == null) {
+            return;
+        }
+        FirebaseFirestore database = FirebaseFirestore.getInstance();
+        DocumentReference userDocument = database.collection(Constants.KEY_COLLECTION_USERS).document(userId);
+        userDocument.get().addOnSuccessListener(migrationExecutor, documentSnapshot -> {
+            if (!documentSnapshot.exists()) {
+                return;
+            }
+            WriteBatch batch = database.batch();
+            String imageHash = documentSnapshot.getString(Constants.KEY_IMAGE_HASH);
+            String imagePlaceholder = documentSnapshot.getString(Constants.KEY_IMAGE_PLACEHOLDER);
+            String image = documentSnapshot.getString(Constants.KEY_IMAGE);
+            Bitmap legacyImage = imageHash == null && image != null ? decodeLegacyImage(image) : null;
+            if (legacyImage != null) {
+                AvatarStore avatarStore = AvatarStore.getInstance(context);
+                AvatarStore.AvatarUpload upload = avatarStore.prepare(legacyImage);
+                legacyImage.recycle();
+                imageHash = upload.hash;
+                imagePlaceholder = upload.placeholder;
+                avatarStore.addUpload(batch, upload);
+                batch.update(userDocument,
+                        Constants.KEY_IMAGE_HASH, imageHash,
+                        Constants.KEY_IMAGE_PLACEHOLDER, imagePlaceholder);
+            }
+            batch.set(entryFor(database, userId), entryOf(
+                    documentSnapshot.getString(Constants.KEY_NAME),
+                    documentSnapshot.getString(Constants.KEY_EMAIL),
+                    imageHash,
+                    imagePlaceholder
+            ));
+            String publishedHash = imageHash;
+            batch.commit()
+                    .addOnSuccessListener(unused -> {
+                        if (publishedHash != null) {
+                            preferenceManager.putstring(Constants.KEY_IMAGE_HASH, publishedHash);
+                        }
+                        preferenceManager.putBoolean(Constants.KEY_DIRECTORY_PUBLISHED, true);
+                    })
+                    .addOnFailureListener(e -> Log.w("UserDirectory", "Publishing directory entry failed", e));
+        });
+    }
+
+    private static Bitmap decodeLegacyImage(String image) {
+        try {
+            byte[] bytes = Base64.decode(image, Base64.DEFAULT);
+            return BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+        } catch (IllegalArgumentException e) {
+            Log.w("UserDirectory", "Unreadable legacy avatar", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.sigma_chat_v2.listeners;
+
+import com.example.sigma_chat_v2.models.MessageSearchResult;
+
+public interface SearchResultListener {
+    void onSearchResultClicked(MessageSearchResult result);
+}
@@ -1,9 +1,36 @@
 package com.example.sigma_chat_v2.models;
 
-import java.util.Date;
+import com.example.sigma_chat_v2.utilities.IdPool;
 
-public class ChatMessage {
-    public String senderId, receiverId, message, dateTime;
-    public Date dateObject;
-    public String conversionId, conversionName, conversionImage;
+// One message row. Immutable: changes arrive as a new instance. Participant ids are interned, so
+// a long chat holds two id strings rather than two per message, and whether the current user
+// sent it is decided once here instead of on every bind.
+public final class ChatMessage {
+    // Sorts after everything else, where a message whose server time is not known yet belongs.
+    public static final long UNRESOLVED_TIMESTAMP = Long.MAX_VALUE;
+
+    public final String messageId;
+    public final String senderId;
+    public final String receiverId;
+    public final String message;
+    public final long timestamp;
+    public final boolean sent;
+    // Null for text messages.
+    public final ImageAttachment image;
+
+    public ChatMessage(String messageId, String senderId, String receiverId, String message,
+                       long timestamp, String currentUserId) {
+        this(messageId, senderId, receiverId, message, timestamp, currentUserId, null);
+    }
+
+    public ChatMessage(String messageId, String senderId, String receiverId, String message,
+                       long timestamp, String currentUserId, ImageAttachment image) {
+        this.messageId = messageId;
+        this.senderId = IdPool.intern(senderId);
+        this.receiverId = IdPool.intern(receiverId);
+        this.message = message;
+        this.timestamp = timestamp;
+        this.sent = senderId != null && senderId.equals(currentUserId);
+        this.image = image;
+    }
 }
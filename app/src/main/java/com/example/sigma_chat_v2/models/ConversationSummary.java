@@ -0,0 +1,30 @@
+package com.example.sigma_chat_v2.models;
+
+import com.example.sigma_chat_v2.utilities.IdPool;
+
+// A row of the recent conversations list, seen from the current user's side. Immutable.
+public final class ConversationSummary {
+    public final String id;
+    public final String senderId;
+    public final String receiverId;
+    public final String otherUserId;
+    public final String otherName;
+    public final String otherImageHash;
+    public final String otherImage;
+    public final String lastMessage;
+    public final long timestamp;
+
+    public ConversationSummary(String id, String senderId, String receiverId, String otherUserId,
+                               String otherName, String otherImageHash, String otherImage,
+                               String lastMessage, long timestamp) {
+        this.id = id;
+        this.senderId = IdPool.intern(senderId);
+        this.receiverId = IdPool.intern(receiverId);
+        this.otherUserId = IdPool.intern(otherUserId);
+        this.otherName = otherName;
+        this.otherImageHash = otherImageHash;
+        this.otherImage = otherImage;
+        this.lastMessage = lastMessage;
+        this.timestamp = timestamp;
+    }
+}
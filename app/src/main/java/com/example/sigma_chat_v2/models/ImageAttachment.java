@@ -0,0 +1,17 @@
+package com.example.sigma_chat_v2.models;
+
+// The photo of an image message. The full image is a blob; the preview is a tiny inline WebP shown
+// until it arrives, and the dimensions let the row take its final size before either is decoded.
+public final class ImageAttachment {
+    public final String blobId;
+    public final String preview;
+    public final int width;
+    public final int height;
+
+    public ImageAttachment(String blobId, String preview, int width, int height) {
+        this.blobId = blobId;
+        this.preview = preview;
+        this.width = width;
+        this.height = height;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.sigma_chat_v2.models;
+
+// A message matching a search, with the conversation it belongs to and a snippet whose matched
+// terms are wrapped in ChatDatabase.SNIPPET_MATCH_START / SNIPPET_MATCH_END. Immutable.
+public final class MessageSearchResult {
+    public final ChatMessage chatMessage;
+    public final String conversationId;
+    public final String otherUserId;
+    public final String otherName;
+    public final String otherImageHash;
+    public final String otherImage;
+    public final String snippet;
+    public final double score;
+
+    public MessageSearchResult(ChatMessage chatMessage, String conversationId, String otherUserId,
+                               String otherName, String otherImageHash, String otherImage,
+                               String snippet, double score) {
+        this.chatMessage = chatMessage;
+        this.conversationId = conversationId;
+        this.otherUserId = otherUserId;
+        this.otherName = otherName;
+        this.otherImageHash = otherImageHash;
+        this.otherImage = otherImage;
+        this.snippet = snippet;
+        this.score = score;
+    }
+}
@@ -2,5 +2,5 @@ package com.example.sigma_chat_v2.models;
 
 import java.io.Serializable;
 public class User implements Serializable{
-    public String name, image, email, token, id;
+    public String name, image, imageHash, imagePlaceholder, email, token, id;
 }
@@ -1,19 +1,58 @@
 package com.example.sigma_chat_v2.network;
 
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import retrofit2.Retrofit;
 import retrofit2.converter.scalars.ScalarsConverterFactory;
 
 
 public class ApiClient {
+    private static final String FCM_BASE_URL = "https://fcm.googleapis.com/";
+
+    private static OkHttpClient httpClient = null;
     private static Retrofit retrofit = null;
+    private static ApiService apiService = null;
 
-    public static  Retrofit getClient(){
-        if (retrofit == null){
-            retrofit = new Retrofit.Builder()
-                    .baseUrl("https://fcm.googleapis.com/")
-                    .addConverterFactory(ScalarsConverterFactory.create())
+    public static synchronized OkHttpClient getHttpClient(){
+        if (httpClient == null){
+            httpClient = new OkHttpClient.Builder()
+                    .connectionPool(new ConnectionPool(4, 5, TimeUnit.MINUTES))
+                    .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                    .connectTimeout(10, TimeUnit.SECONDS)
+                    .writeTimeout(15, TimeUnit.SECONDS)
+                    .readTimeout(15, TimeUnit.SECONDS)
+                    .callTimeout(30, TimeUnit.SECONDS)
+                    .retryOnConnectionFailure(true)
+                    .addInterceptor(new GzipRequestInterceptor())
+                    .eventListenerFactory(MetricsEventListener.FACTORY)
                     .build();
         }
+        return httpClient;
+    }
+
+    public static synchronized Retrofit getClient(){
+        if (retrofit == null){
+            retrofit = create(FCM_BASE_URL);
+        }
         return retrofit;
     }
+
+    public static synchronized ApiService getService(){
+        if (apiService == null){
+            apiService = getClient().create(ApiService.class);
+        }
+        return apiService;
+    }
+
+    static Retrofit create(String baseUrl){
+        return new Retrofit.Builder()
+                .baseUrl(baseUrl)
+                .client(getHttpClient())
+                .addConverterFactory(ScalarsConverterFactory.create())
+                .build();
+    }
 }
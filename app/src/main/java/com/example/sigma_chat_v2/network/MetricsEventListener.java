@@ -0,0 +1,113 @@
+package com.example.sigma_chat_v2.network;
+
+import com.example.sigma_chat_v2.utilities.MetricsRegistry;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+// Records per-call phase timings (DNS, connect, TLS, time to first byte, total) and payload sizes
+// into the MetricsRegistry under "http.<path>.<metric>". One instance is created per call.
+class MetricsEventListener extends EventListener {
+
+    static final Factory FACTORY = call -> new MetricsEventListener(
+            MetricsRegistry.getInstance(), "http." + call.request().url().encodedPath().replaceFirst("^/", ""));
+
+    private final MetricsRegistry registry;
+    private final String prefix;
+    private long callStartNanos;
+    private long dnsStartNanos;
+    private long connectStartNanos;
+    private long secureConnectStartNanos;
+
+    MetricsEventListener(MetricsRegistry registry, String prefix) {
+        this.registry = registry;
+        this.prefix = prefix;
+    }
+
+    private void recordSince(String metric, long startNanos) {
+        registry.record(prefix + "." + metric, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    @Override
+    public void callStart(Call call) {
+        callStartNanos = System.nanoTime();
+        registry.increment(prefix + ".calls");
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        dnsStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        recordSince("dns_ms", dnsStartNanos);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        secureConnectStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        recordSince("tls_ms", secureConnectStartNanos);
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        recordSince("connect_ms", connectStartNanos);
+        registry.increment(prefix + ".protocol." + protocol);
+    }
+
+    @Override
+    public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                              Protocol protocol, IOException ioe) {
+        registry.increment(prefix + ".connect_failures");
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        registry.record(prefix + ".request_bytes", byteCount);
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        recordSince("ttfb_ms", callStartNanos);
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        registry.increment(prefix + ".status." + response.code());
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        registry.record(prefix + ".response_bytes", byteCount);
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        recordSince("total_ms", callStartNanos);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        recordSince("total_ms", callStartNanos);
+        registry.increment(prefix + ".failures");
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.sigma_chat_v2.network;
+
+import com.example.sigma_chat_v2.utilities.Constants;
+import com.example.sigma_chat_v2.utilities.MetricsRegistry;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Response;
+
+// Sends FCM pushes for messages to offline receivers. Bursts to the same recipient are debounced
+// into one "N new messages" push, at most maxInFlight requests are on the wire at once (one per
+// worker thread), and 5xx/429 responses are retried with exponential backoff.
+public class PushDispatcher {
+
+    public interface Listener {
+        void onDelivered(String recipientToken, int messageCount);
+        void onFailed(String recipientToken, String error);
+    }
+
+    private static final long DEBOUNCE_MS = 1500;
+    private static final int MAX_IN_FLIGHT = 2;
+    private static final long BASE_RETRY_DELAY_MS = 1000;
+    private static final long MAX_RETRY_DELAY_MS = 60 * 1000;
+    private static final int MAX_ATTEMPTS = 5;
+
+    private static PushDispatcher instance = null;
+
+    private final ApiService apiService;
+    private final HashMap<String, String> headers;
+    private final long debounceMillis;
+    private final long baseRetryDelayMillis;
+    private final int maxAttempts;
+    private final ScheduledExecutorService executor;
+    private final HashMap<String, Pending> pending = new HashMap<>();
+
+    private static class Pending {
+        String senderId;
+        String senderName;
+        String senderToken;
+        String lastMessage;
+        int count;
+        long firstQueuedNanos;
+        Listener listener;
+        ScheduledFuture<?> future;
+    }
+
+    public static synchronized PushDispatcher getInstance() {
+        if (instance == null) {
+            instance = new PushDispatcher(ApiClient.getService(), Constants.getRemoteMsgHeaders(),
+                    DEBOUNCE_MS, MAX_IN_FLIGHT, BASE_RETRY_DELAY_MS, MAX_ATTEMPTS);
+        }
+        return instance;
+    }
+
+    PushDispatcher(ApiService apiService, HashMap<String, String> headers, long debounceMillis,
+                   int maxInFlight, long baseRetryDelayMillis, int maxAttempts) {
+        this.apiService = apiService;
+        this.headers = headers;
+        this.debounceMillis = debounceMillis;
+        this.baseRetryDelayMillis = baseRetryDelayMillis;
+        this.maxAttempts = maxAttempts;
+        ScheduledThreadPoolExecutor threadPool = new ScheduledThreadPoolExecutor(maxInFlight);
+        threadPool.setRemoveOnCancelPolicy(true);
+        this.executor = threadPool;
+    }
+
+    public void dispatch(String recipientToken, String senderId, String senderName, String senderToken,
+                         String message, Listener listener) {
+        synchronized (pending) {
+            Pending entry = pending.get(recipientToken);
+            if (entry == null) {
+                entry = new Pending();
+                entry.firstQueuedNanos = System.nanoTime();
+                pending.put(recipientToken, entry);
+            } else if (entry.future != null) {
+                entry.future.cancel(false);
+            }
+            entry.senderId = senderId;
+            entry.senderName = senderName;
+            entry.senderToken = senderToken;
+            entry.lastMessage = message;
+            entry.count++;
+            entry.listener = listener;
+            entry.future = executor.schedule(() -> flush(recipientToken), debounceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void flush(String recipientToken) {
+        Pending entry;
+        synchronized (pending) {
+            entry = pending.remove(recipientToken);
+        }
+        if (entry == null) {
+            return;
+        }
+        String body;
+        try {
+            body = buildBody(recipientToken, entry);
+        } catch (JSONException e) {
+            notifyFailed(entry, recipientToken, e.getMessage());
+            return;
+        }
+        send(recipientToken, entry, body, 1);
+    }
+
+    static String buildBody(String recipientToken, String senderId, String senderName, String senderToken,
+                            String message, int count) throws JSONException {
+        JSONArray tokens = new JSONArray();
+        tokens.put(recipientToken);
+
+        JSONObject data = new JSONObject();
+        data.put(Constants.KEY_USER_ID, senderId);
+        data.put(Constants.KEY_NAME, senderName);
+        data.put(Constants.KEY_FCM_TOKEN, senderToken);
+        data.put(Constants.KEY_MESSAGE, count > 1 ? count + " new messages" : message);
+
+        JSONObject body = new JSONObject();
+        body.put(Constants.REMOTE_MSG_DATA, data);
+        body.put(Constants.REMOTE_MSG_REGISTRATION_IDS, tokens);
+        return body.toString();
+    }
+
+    private static String buildBody(String recipientToken, Pending entry) throws JSONException {
+        return buildBody(recipientToken, entry.senderId, entry.senderName, entry.senderToken,
+                entry.lastMessage, entry.count);
+    }
+
+    // Runs on a worker thread and blocks it for the duration of the request.
+    private void send(String recipientToken, Pending entry, String body, int attempt) {
+        Response<String> response;
+        try {
+            response = apiService.sendMessage(headers, body).execute();
+        } catch (IOException e) {
+            retryOrFail(recipientToken, entry, body, attempt, -1, e.getMessage());
+            return;
+        }
+        int code = response.code();
+        if (code == 429 || code >= 500) {
+            retryOrFail(recipientToken, entry, body, attempt, retryAfterMillis(response), "Error: " + code);
+            return;
+        }
+        if (!response.isSuccessful()) {
+            notifyFailed(entry, recipientToken, "Error: " + code);
+            return;
+        }
+        String error = resultError(response.body());
+        if (error != null) {
+            notifyFailed(entry, recipientToken, error);
+            return;
+        }
+        MetricsRegistry.getInstance().record("push.delivery_ms", (System.nanoTime() - entry.firstQueuedNanos) / 1_000_000);
+        MetricsRegistry.getInstance().record("push.coalesced_messages", entry.count);
+        if (entry.listener != null) {
+            entry.listener.onDelivered(recipientToken, entry.count);
+        }
+    }
+
+    private void retryOrFail(String recipientToken, Pending entry, String body, int attempt,
+                             long retryAfterMillis, String error) {
+        MetricsRegistry.getInstance().increment("push.retries");
+        if (attempt >= maxAttempts) {
+            notifyFailed(entry, recipientToken, error);
+            return;
+        }
+        long delay = Math.max(retryDelayMillis(attempt), retryAfterMillis);
+        executor.schedule(() -> send(recipientToken, entry, body, attempt + 1), delay, TimeUnit.MILLISECONDS);
+    }
+
+    long retryDelayMillis(int attempt) {
+        return Math.min(baseRetryDelayMillis << Math.min(attempt - 1, 16), MAX_RETRY_DELAY_MS);
+    }
+
+    private static long retryAfterMillis(Response<String> response) {
+        String retryAfter = response.headers().get("Retry-After");
+        if (retryAfter == null) {
+            return -1;
+        }
+        try {
+            return Math.min(Long.parseLong(retryAfter.trim()) * 1000, MAX_RETRY_DELAY_MS);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String resultError(String responseBody) {
+        if (responseBody == null) {
+            return null;
+        }
+        try {
+            JSONObject responseJson = new JSONObject(responseBody);
+            if (responseJson.optInt("failure") == 1) {
+                JSONObject error = responseJson.getJSONArray("results").getJSONObject(0);
+                return error.getString("error");
+            }
+        } catch (JSONException e) {
+            return null;
+        }
+        return null;
+    }
+
+    private static void notifyFailed(Pending entry, String recipientToken, String error) {
+        MetricsRegistry.getInstance().increment("push.failures");
+        if (entry.listener != null) {
+            entry.listener.onFailed(recipientToken, error);
+        }
+    }
+}
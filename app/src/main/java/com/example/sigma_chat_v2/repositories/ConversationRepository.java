@@ -0,0 +1,186 @@
+package com.example.sigma_chat_v2.repositories;
+
+import android.content.Context;
+
+import androidx.lifecycle.LiveData;
+
+import com.example.sigma_chat_v2.database.ChatDatabase;
+import com.example.sigma_chat_v2.firebase.ListenerRegistry;
+import com.example.sigma_chat_v2.models.ConversationSummary;
+import com.example.sigma_chat_v2.utilities.Constants;
+import com.example.sigma_chat_v2.utilities.ConversationIndex;
+import com.example.sigma_chat_v2.utilities.PreferenceManager;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// App-scoped recent conversations of the signed-in user. The list outlives activities, so going
+// back to MainActivity shows it instantly; the Firestore listener only runs while it is observed.
+public class ConversationRepository {
+
+    private static ConversationRepository instance = null;
+
+    private final PreferenceManager preferenceManager;
+    private final ChatDatabase chatDatabase;
+    private final ConversationIndex conversations = new ConversationIndex();
+    private final ConversationsLiveData conversationsLiveData = new ConversationsLiveData();
+    private String userId = null;
+    private boolean receivedServerSnapshot = false;
+
+    public static synchronized ConversationRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new ConversationRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ConversationRepository(Context context) {
+        preferenceManager = new PreferenceManager(context);
+        chatDatabase = ChatDatabase.getInstance(context);
+    }
+
+    // Row-level changes reach the adapter through the index's update callback; the LiveData keeps
+    // the listener tied to observers and signals that a snapshot has been applied.
+    public LiveData<ConversationIndex> getConversations() {
+        return conversationsLiveData;
+    }
+
+    // Called on sign-out.
+    public void clear() {
+        conversationsLiveData.unsubscribe();
+        userId = null;
+        receivedServerSnapshot = false;
+        conversations.clear();
+        conversationsLiveData.publish();
+    }
+
+    private class ConversationsLiveData extends LiveData<ConversationIndex> {
+
+        private ListenerRegistry.Subscription subscription;
+
+        ConversationsLiveData() {
+            super(conversations);
+        }
+
+        @Override
+        protected void onActive() {
+            String currentUserId = preferenceManager.getString(Constants.KEY_USER_ID);
+            if (currentUserId == null) {
+                return;
+            }
+            if (!currentUserId.equals(userId)) {
+                clear();
+                userId = currentUserId;
+                loadCachedConversations();
+            }
+            String ownerId = userId;
+            subscription = ListenerRegistry.getInstance().listen(
+                    null,
+                    FirebaseFirestore.getInstance()
+                            .collection(Constants.KEY_COLLECTION_CONVERSATIONS)
+                            .whereArrayContains(Constants.KEY_PARTICIPANTS, ownerId),
+                    (value, reset) -> parse(ownerId, value, reset),
+                    ConversationRepository.this::onSnapshot
+            );
+        }
+
+        @Override
+        protected void onInactive() {
+            unsubscribe();
+        }
+
+        void unsubscribe() {
+            if (subscription != null) {
+                subscription.remove();
+                subscription = null;
+            }
+        }
+
+        void publish() {
+            setValue(conversations);
+        }
+    }
+
+    private void loadCachedConversations() {
+        String requestedUserId = userId;
+        chatDatabase.runAsync(db -> db.getConversations(requestedUserId), cachedConversations -> {
+            if (receivedServerSnapshot || !requestedUserId.equals(userId) || cachedConversations.isEmpty()) {
+                return;
+            }
+            conversations.replaceAll(cachedConversations);
+            conversationsLiveData.publish();
+        });
+    }
+
+    // A conversations snapshot parsed off the main thread.
+    private static class ConversationChanges {
+        List<ConversationSummary> changed = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+    }
+
+    // Background thread.
+    private ConversationChanges parse(String ownerId, QuerySnapshot value, boolean reset) {
+        ConversationChanges changes = new ConversationChanges();
+        if (reset) {
+            for (DocumentSnapshot documentSnapshot : value.getDocuments()) {
+                changes.changed.add(toConversation(documentSnapshot, ownerId));
+            }
+        } else {
+            for (DocumentChange documentChange : value.getDocumentChanges()){
+                if(documentChange.getType() == DocumentChange.Type.REMOVED){
+                    changes.removed.add(documentChange.getDocument().getId());
+                }else {
+                    changes.changed.add(toConversation(documentChange.getDocument(), ownerId));
+                }
+            }
+        }
+        chatDatabase.runAsync(() -> {
+            chatDatabase.saveConversations(ownerId, changes.changed);
+            for (String documentId : changes.removed) {
+                chatDatabase.deleteConversation(documentId);
+            }
+        });
+        return changes;
+    }
+
+    private void onSnapshot(ConversationChanges changes, boolean reset) {
+        receivedServerSnapshot = true;
+        if (reset) {
+            // A complete result set supersedes the cache and anything seen before a re-attach.
+            conversations.replaceAll(changes.changed);
+        } else {
+            for (ConversationSummary conversation : changes.changed) {
+                conversations.upsert(conversation);
+            }
+            for (String documentId : changes.removed) {
+                conversations.remove(documentId);
+            }
+        }
+        conversationsLiveData.publish();
+    }
+
+    private static ConversationSummary toConversation(DocumentSnapshot documentSnapshot, String userId) {
+        String senderId = documentSnapshot.getString(Constants.KEY_SENDER_ID);
+        String receiverId = documentSnapshot.getString(Constants.KEY_RECEIVER_ID);
+        boolean sentByUser = userId.equals(senderId);
+        String otherImageHash = documentSnapshot.getString(
+                sentByUser ? Constants.KEY_RECEIVER_IMAGE_HASH : Constants.KEY_SENDER_IMAGE_HASH);
+        String otherImage = otherImageHash != null ? null : documentSnapshot.getString(
+                sentByUser ? Constants.KEY_RECEIVER_IMAGE : Constants.KEY_SENDER_IMAGE);
+        return new ConversationSummary(
+                documentSnapshot.getId(),
+                senderId,
+                receiverId,
+                sentByUser ? receiverId : senderId,
+                documentSnapshot.getString(sentByUser ? Constants.KEY_RECEIVER_NAME : Constants.KEY_SENDER_NAME),
+                otherImageHash,
+                otherImage,
+                documentSnapshot.getString(Constants.KEY_LAST_MESSAGE),
+                MessageRepository.timestampOf(documentSnapshot)
+        );
+    }
+}
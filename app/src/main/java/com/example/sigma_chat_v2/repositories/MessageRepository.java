@@ -0,0 +1,153 @@
+package com.example.sigma_chat_v2.repositories;
+
+import android.content.Context;
+
+import com.example.sigma_chat_v2.database.ChatDatabase;
+import com.example.sigma_chat_v2.firebase.MessagePager;
+import com.example.sigma_chat_v2.models.ChatMessage;
+import com.example.sigma_chat_v2.models.ImageAttachment;
+import com.example.sigma_chat_v2.utilities.Constants;
+import com.example.sigma_chat_v2.utilities.PreferenceManager;
+import com.example.sigma_chat_v2.utilities.SortedMessageList;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Keeps the message windows of recently opened conversations in memory, so reopening a chat shows
+// its messages immediately while the live listener catches up.
+public class MessageRepository {
+
+    private static final int MAX_CACHED_CONVERSATIONS = 8;
+
+    private static MessageRepository instance = null;
+
+    private final ChatDatabase chatDatabase;
+    private final PreferenceManager preferenceManager;
+    private final LinkedHashMap<String, MessageWindow> windows =
+            new LinkedHashMap<String, MessageWindow>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, MessageWindow> eldest) {
+                    return size() > MAX_CACHED_CONVERSATIONS && eldest.getValue().openCount == 0;
+                }
+            };
+
+    public static synchronized MessageRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new MessageRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private MessageRepository(Context context) {
+        chatDatabase = ChatDatabase.getInstance(context);
+        preferenceManager = new PreferenceManager(context);
+    }
+
+    public MessageWindow open(String conversationId) {
+        MessageWindow window = windows.get(conversationId);
+        if (window == null) {
+            String currentUserId = preferenceManager.getString(Constants.KEY_USER_ID);
+            window = new MessageWindow(conversationId);
+            window.setPager(new MessagePager(
+                    FirebaseFirestore.getInstance(),
+                    chatDatabase,
+                    conversationId,
+                    window.getSortedMessages(),
+                    documentSnapshot -> toChatMessage(documentSnapshot, currentUserId),
+                    window
+            ));
+            windows.put(conversationId, window);
+            loadCachedMessages(window, currentUserId);
+        } else if (window.openCount == 0 && window.getPager().isAtLiveEdge()) {
+            // Messages prefetched into the database while the chat was closed.
+            appendCachedMessages(window, preferenceManager.getString(Constants.KEY_USER_ID));
+        }
+        window.openCount++;
+        window.getPager().start();
+        return window;
+    }
+
+    public void close(MessageWindow window) {
+        window.openCount--;
+        if (window.openCount == 0) {
+            window.getPager().stop();
+        }
+    }
+
+    // Called on sign-out.
+    public void clear() {
+        for (MessageWindow window : windows.values()) {
+            window.getPager().stop();
+        }
+        windows.clear();
+    }
+
+    private void loadCachedMessages(MessageWindow window, String currentUserId) {
+        chatDatabase.runAsync(
+                db -> db.getLatestMessages(window.getConversationId(), MessagePager.PAGE_SIZE, currentUserId),
+                cachedMessages -> {
+                    if (cachedMessages.isEmpty() || window.isHistoryLoaded()) {
+                        return;
+                    }
+                    window.getSortedMessages().insertAll(cachedMessages);
+                    window.onHistoryLoaded();
+                }
+        );
+    }
+
+    // Appends the cached messages newer than the window, but only if they continue it without a
+    // gap.
+    private void appendCachedMessages(MessageWindow window, String currentUserId) {
+        chatDatabase.runAsync(
+                db -> db.getLatestMessages(window.getConversationId(), MessagePager.PAGE_SIZE, currentUserId),
+                cachedMessages -> {
+                    SortedMessageList messages = window.getSortedMessages();
+                    if (messages.isEmpty()) {
+                        return;
+                    }
+                    String lastId = messages.last().messageId;
+                    for (int i = 0; i < cachedMessages.size(); i++) {
+                        if (cachedMessages.get(i).messageId.equals(lastId)) {
+                            messages.insertAll(cachedMessages.subList(i + 1, cachedMessages.size()));
+                            return;
+                        }
+                    }
+                }
+        );
+    }
+
+    public static ChatMessage toChatMessage(DocumentSnapshot documentSnapshot, String currentUserId) {
+        return new ChatMessage(
+                documentSnapshot.getId(),
+                documentSnapshot.getString(Constants.KEY_SENDER_ID),
+                documentSnapshot.getString(Constants.KEY_RECEIVER_ID),
+                documentSnapshot.getString(Constants.KEY_MESSAGE),
+                timestampOf(documentSnapshot),
+                currentUserId,
+                imageOf(documentSnapshot)
+        );
+    }
+
+    private static ImageAttachment imageOf(DocumentSnapshot documentSnapshot) {
+        String blobId = documentSnapshot.getString(Constants.KEY_IMAGE_BLOB_ID);
+        if (blobId == null) {
+            return null;
+        }
+        Long width = documentSnapshot.getLong(Constants.KEY_IMAGE_WIDTH);
+        Long height = documentSnapshot.getLong(Constants.KEY_IMAGE_HEIGHT);
+        return new ImageAttachment(
+                blobId,
+                documentSnapshot.getString(Constants.KEY_IMAGE_PREVIEW),
+                width == null ? 0 : width.intValue(),
+                height == null ? 0 : height.intValue()
+        );
+    }
+
+    public static long timestampOf(DocumentSnapshot documentSnapshot) {
+        Date date = documentSnapshot.getDate(Constants.KEY_TIMESTAMP);
+        return date == null ? ChatMessage.UNRESOLVED_TIMESTAMP : date.getTime();
+    }
+}
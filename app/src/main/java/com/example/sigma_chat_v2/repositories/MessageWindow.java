@@ -0,0 +1,84 @@
+package com.example.sigma_chat_v2.repositories;
+
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import com.example.sigma_chat_v2.firebase.MessagePager;
+import com.example.sigma_chat_v2.models.ChatMessage;
+import com.example.sigma_chat_v2.utilities.SortedMessageList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The loaded messages of one conversation together with the pager that keeps them current. It is
+// cached by MessageRepository, so the screen showing it can be recreated or reopened without
+// reloading; the screen attaches its adapter and pager callback while it is alive.
+public class MessageWindow implements MessagePager.Callback {
+
+    private final String conversationId;
+    private final List<ChatMessage> messages = new ArrayList<>();
+    private final SortedMessageList sortedMessages = new SortedMessageList(messages);
+    private MessagePager pager;
+    private MessagePager.Callback callback;
+    private boolean historyLoaded = false;
+    int openCount = 0;
+
+    MessageWindow(String conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    void setPager(MessagePager pager) {
+        this.pager = pager;
+    }
+
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    public List<ChatMessage> getMessages() {
+        return messages;
+    }
+
+    public SortedMessageList getSortedMessages() {
+        return sortedMessages;
+    }
+
+    public MessagePager getPager() {
+        return pager;
+    }
+
+    public boolean isHistoryLoaded() {
+        return historyLoaded;
+    }
+
+    public void attach(ListUpdateCallback updateCallback, MessagePager.Callback callback) {
+        sortedMessages.setUpdateCallback(updateCallback);
+        this.callback = callback;
+    }
+
+    public void detach() {
+        sortedMessages.setUpdateCallback(null);
+        callback = null;
+    }
+
+    @Override
+    public void onHistoryLoaded() {
+        historyLoaded = true;
+        if (callback != null) {
+            callback.onHistoryLoaded();
+        }
+    }
+
+    @Override
+    public void onLiveMessageAdded(int position) {
+        if (callback != null) {
+            callback.onLiveMessageAdded(position);
+        }
+    }
+
+    @Override
+    public void onJumpedTo(int position) {
+        if (callback != null) {
+            callback.onJumpedTo(position);
+        }
+    }
+}
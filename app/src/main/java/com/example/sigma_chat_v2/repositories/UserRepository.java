@@ -0,0 +1,218 @@
+package com.example.sigma_chat_v2.repositories;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.sigma_chat_v2.database.ChatDatabase;
+import com.example.sigma_chat_v2.firebase.UserDirectory;
+import com.example.sigma_chat_v2.models.User;
+import com.example.sigma_chat_v2.utilities.Constants;
+import com.example.sigma_chat_v2.utilities.PreferenceManager;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The user directory, fetched a page at a time from the lightweight directory collection and
+// filtered by name prefix on the server. Pages already fetched are kept per search in memory, and
+// the users they contain in the local database, so revisiting a search or the list is instant.
+public class UserRepository {
+
+    public static final int PAGE_SIZE = 25;
+    private static final long REFRESH_INTERVAL_MS = 60 * 1000;
+    private static final int MAX_CACHED_SEARCHES = 16;
+
+    private static UserRepository instance = null;
+
+    private final PreferenceManager preferenceManager;
+    private final ChatDatabase chatDatabase;
+    private final MutableLiveData<List<User>> users = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> loading = new MutableLiveData<>(false);
+    private final MutableLiveData<Boolean> loadFailed = new MutableLiveData<>(false);
+    private final LinkedHashMap<String, Pages> searches =
+            new LinkedHashMap<String, Pages>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Pages> eldest) {
+                    return size() > MAX_CACHED_SEARCHES;
+                }
+            };
+    private String userId = null;
+    private String prefix = "";
+
+    // The pages fetched so far for one normalized prefix.
+    private static class Pages {
+        final List<User> users = new ArrayList<>();
+        DocumentSnapshot cursor;
+        boolean exhausted = false;
+        boolean fetching = false;
+        long fetchedAt = 0;
+    }
+
+    public static synchronized UserRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new UserRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private UserRepository(Context context) {
+        preferenceManager = new PreferenceManager(context);
+        chatDatabase = ChatDatabase.getInstance(context);
+    }
+
+    public LiveData<List<User>> getUsers() {
+        return users;
+    }
+
+    public LiveData<Boolean> isLoading() {
+        return loading;
+    }
+
+    public LiveData<Boolean> hasLoadFailed() {
+        return loadFailed;
+    }
+
+    // Shows the cached pages for the prefix at once and fetches the first page if there are none
+    // or they are older than REFRESH_INTERVAL_MS.
+    public void search(String query) {
+        String currentUserId = preferenceManager.getString(Constants.KEY_USER_ID);
+        if (currentUserId == null) {
+            return;
+        }
+        if (!currentUserId.equals(userId)) {
+            clear();
+            userId = currentUserId;
+        }
+        prefix = UserDirectory.normalize(query);
+        Pages pages = searches.get(prefix);
+        if (pages != null && SystemClock.elapsedRealtime() - pages.fetchedAt < REFRESH_INTERVAL_MS) {
+            publish(pages);
+            return;
+        }
+        if (pages == null || !pages.fetching) {
+            Pages fresh = new Pages();
+            if (pages != null) {
+                // Keep showing the stale rows until the first fresh page replaces them.
+                fresh.users.addAll(pages.users);
+            }
+            searches.put(prefix, fresh);
+            pages = fresh;
+        }
+        if (pages.users.isEmpty()) {
+            loadCachedUsers(prefix);
+        } else {
+            publish(pages);
+        }
+        fetchPage(prefix, pages);
+    }
+
+    public void loadMore() {
+        Pages pages = searches.get(prefix);
+        if (pages == null || pages.exhausted || pages.fetching || pages.cursor == null) {
+            return;
+        }
+        fetchPage(prefix, pages);
+    }
+
+    private void loadCachedUsers(String requestedPrefix) {
+        String requestedUserId = userId;
+        chatDatabase.runAsync(db -> db.getUsers(requestedUserId, requestedPrefix, PAGE_SIZE), cachedUsers -> {
+            Pages pages = searches.get(requestedPrefix);
+            if (pages == null || pages.fetchedAt != 0 || !requestedUserId.equals(userId)
+                    || !requestedPrefix.equals(prefix)) {
+                return;
+            }
+            users.setValue(cachedUsers);
+        });
+    }
+
+    private Query queryFor(String normalizedPrefix) {
+        Query query = FirebaseFirestore.getInstance().collection(Constants.KEY_COLLECTION_DIRECTORY);
+        if (!normalizedPrefix.isEmpty()) {
+            query = query.whereGreaterThanOrEqualTo(Constants.KEY_NAME_LOWER, normalizedPrefix)
+                    .whereLessThan(Constants.KEY_NAME_LOWER, normalizedPrefix + '\uf8ff');
+        }
+        return query.orderBy(Constants.KEY_NAME_LOWER).orderBy(FieldPath.documentId());
+    }
+
+    private void fetchPage(String requestedPrefix, Pages pages) {
+        if (pages.fetching) {
+            return;
+        }
+        pages.fetching = true;
+        String requestedUserId = userId;
+        boolean firstPage = pages.fetchedAt == 0;
+        Query query = queryFor(requestedPrefix);
+        if (!firstPage) {
+            query = query.startAfter(pages.cursor);
+        }
+        loading.setValue(true);
+        query.limit(PAGE_SIZE).get().addOnCompleteListener(task -> {
+            pages.fetching = false;
+            if (!requestedUserId.equals(userId)) {
+                return;
+            }
+            if (requestedPrefix.equals(prefix)) {
+                loading.setValue(false);
+            }
+            if (!task.isSuccessful() || task.getResult() == null) {
+                if (requestedPrefix.equals(prefix)) {
+                    loadFailed.setValue(true);
+                }
+                return;
+            }
+            List<DocumentSnapshot> documents = task.getResult().getDocuments();
+            List<User> fetched = new ArrayList<>();
+            for (DocumentSnapshot documentSnapshot : documents) {
+                if (requestedUserId.equals(documentSnapshot.getId())) {
+                    continue;
+                }
+                fetched.add(toUser(documentSnapshot));
+            }
+            if (firstPage) {
+                pages.users.clear();
+            }
+            pages.users.addAll(fetched);
+            pages.cursor = documents.isEmpty() ? pages.cursor : documents.get(documents.size() - 1);
+            pages.exhausted = documents.size() < PAGE_SIZE;
+            pages.fetchedAt = SystemClock.elapsedRealtime();
+            chatDatabase.runAsync(() -> chatDatabase.saveUsers(fetched));
+            if (requestedPrefix.equals(prefix)) {
+                loadFailed.setValue(false);
+                publish(pages);
+            }
+        });
+    }
+
+    private void publish(Pages pages) {
+        users.setValue(new ArrayList<>(pages.users));
+    }
+
+    private static User toUser(DocumentSnapshot documentSnapshot) {
+        User user = new User();
+        user.id = documentSnapshot.getId();
+        user.name = documentSnapshot.getString(Constants.KEY_NAME);
+        user.email = documentSnapshot.getString(Constants.KEY_EMAIL);
+        user.imageHash = documentSnapshot.getString(Constants.KEY_IMAGE_HASH);
+        user.imagePlaceholder = documentSnapshot.getString(Constants.KEY_IMAGE_PLACEHOLDER);
+        return user;
+    }
+
+    // Called on sign-out.
+    public void clear() {
+        userId = null;
+        prefix = "";
+        searches.clear();
+        users.setValue(null);
+        loading.setValue(false);
+        loadFailed.setValue(false);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.sigma_chat_v2.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Somewhere to keep large binary payloads, such as photos, that do not fit in a document. Blobs are
+// written as fixed-size chunks in order, so an interrupted upload resumes from getStoredLength()
+// rather than starting over. Every method blocks: call off the main thread.
+public interface BlobStore {
+
+    int getChunkSize();
+
+    // Bytes of the blob already stored, always a whole number of chunks while it is incomplete.
+    long getStoredLength(String blobId) throws IOException;
+
+    void writeChunk(String blobId, int index, byte[] buffer, int length) throws IOException;
+
+    // Marks the blob readable once every chunk is stored.
+    void complete(String blobId, long length) throws IOException;
+
+    boolean isComplete(String blobId) throws IOException;
+
+    // Streams a complete blob without holding more than a chunk of it in memory.
+    InputStream open(String blobId) throws IOException;
+
+    void delete(String blobId) throws IOException;
+}
@@ -0,0 +1,79 @@
+package com.example.sigma_chat_v2.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Streams a source into a blob store one chunk at a time, through a single reused buffer, picking
+// up after whatever the store already holds. Run again with a fresh source after a failure to
+// resume.
+public final class BlobTransfer {
+
+    public interface ProgressListener {
+        void onProgress(long transferred);
+    }
+
+    private BlobTransfer() {
+    }
+
+    // Blocking. Returns the total length of the blob.
+    public static long copy(InputStream source, String blobId, BlobStore target, ProgressListener listener)
+            throws IOException {
+        if (target.isComplete(blobId)) {
+            return target.getStoredLength(blobId);
+        }
+        int chunkSize = target.getChunkSize();
+        long stored = target.getStoredLength(blobId);
+        skipFully(source, stored);
+        if (listener != null && stored > 0) {
+            listener.onProgress(stored);
+        }
+        byte[] buffer = new byte[chunkSize];
+        int index = (int) (stored / chunkSize);
+        long length = stored;
+        int read;
+        while ((read = readFully(source, buffer)) > 0) {
+            target.writeChunk(blobId, index++, buffer, read);
+            length += read;
+            if (listener != null) {
+                listener.onProgress(length);
+            }
+            if (read < chunkSize) {
+                break;
+            }
+        }
+        target.complete(blobId, length);
+        return length;
+    }
+
+    private static void skipFully(InputStream source, long count) throws IOException {
+        byte[] scratch = null;
+        while (count > 0) {
+            long skipped = source.skip(count);
+            if (skipped <= 0) {
+                // Some streams refuse to skip; read through instead.
+                if (scratch == null) {
+                    scratch = new byte[8192];
+                }
+                int read = source.read(scratch, 0, (int) Math.min(scratch.length, count));
+                if (read < 0) {
+                    throw new IOException("Source ended before the stored length");
+                }
+                skipped = read;
+            }
+            count -= skipped;
+        }
+    }
+
+    // Fills the buffer unless the source ends first; returns the number of bytes read.
+    private static int readFully(InputStream source, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int read = source.read(buffer, total, buffer.length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+}
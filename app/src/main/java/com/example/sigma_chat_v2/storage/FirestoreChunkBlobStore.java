@@ -0,0 +1,193 @@
+package com.example.sigma_chat_v2.storage;
+
+import com.example.sigma_chat_v2.utilities.Constants;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.Blob;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+
+// Blobs split across documents: blobs/{id} holds the manifest and blobs/{id}/chunks/{index} the
+// bytes, each chunk well under the 1MB document limit. Every chunk is committed together with the
+// manifest's count of full chunks stored, so the count is exact after any interruption; a short
+// final chunk is not counted and is written again on resume. Pass a Firestore instance pointed at
+// the emulator to exercise it in tests.
+public class FirestoreChunkBlobStore implements BlobStore {
+
+    public static final int DEFAULT_CHUNK_SIZE = 512 * 1024;
+
+    private final FirebaseFirestore database;
+    private final int chunkSize;
+
+    public FirestoreChunkBlobStore(FirebaseFirestore database) {
+        this(database, DEFAULT_CHUNK_SIZE);
+    }
+
+    public FirestoreChunkBlobStore(FirebaseFirestore database, int chunkSize) {
+        this.database = database;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    private DocumentReference manifestOf(String blobId) {
+        return database.collection(Constants.KEY_COLLECTION_BLOBS).document(blobId);
+    }
+
+    private DocumentReference chunkOf(String blobId, int index) {
+        return manifestOf(blobId).collection(Constants.KEY_COLLECTION_CHUNKS).document(String.valueOf(index));
+    }
+
+    @Override
+    public long getStoredLength(String blobId) throws IOException {
+        DocumentSnapshot manifest = await(manifestOf(blobId).get());
+        if (!manifest.exists()) {
+            return 0;
+        }
+        if (Boolean.TRUE.equals(manifest.getBoolean(Constants.KEY_COMPLETE))) {
+            return longOf(manifest, Constants.KEY_LENGTH);
+        }
+        if (longOf(manifest, Constants.KEY_CHUNK_SIZE) != chunkSize) {
+            // Started with another chunk size: the stored chunks do not line up, so start over.
+            return 0;
+        }
+        return longOf(manifest, Constants.KEY_STORED_CHUNKS) * chunkSize;
+    }
+
+    @Override
+    public void writeChunk(String blobId, int index, byte[] buffer, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, 0, bytes, 0, length);
+        HashMap<String, Object> chunk = new HashMap<>();
+        chunk.put(Constants.KEY_DATA, Blob.fromBytes(bytes));
+        HashMap<String, Object> manifest = new HashMap<>();
+        manifest.put(Constants.KEY_CHUNK_SIZE, chunkSize);
+        manifest.put(Constants.KEY_STORED_CHUNKS, storedChunksAfter(index, length, chunkSize));
+        manifest.put(Constants.KEY_COMPLETE, false);
+        WriteBatch batch = database.batch();
+        batch.set(chunkOf(blobId, index), chunk);
+        batch.set(manifestOf(blobId), manifest, SetOptions.merge());
+        await(batch.commit());
+    }
+
+    @Override
+    public void complete(String blobId, long length) throws IOException {
+        HashMap<String, Object> manifest = new HashMap<>();
+        manifest.put(Constants.KEY_LENGTH, length);
+        manifest.put(Constants.KEY_COMPLETE, true);
+        await(manifestOf(blobId).set(manifest, SetOptions.merge()));
+    }
+
+    @Override
+    public boolean isComplete(String blobId) throws IOException {
+        return Boolean.TRUE.equals(await(manifestOf(blobId).get()).getBoolean(Constants.KEY_COMPLETE));
+    }
+
+    @Override
+    public InputStream open(String blobId) throws IOException {
+        DocumentSnapshot manifest = await(manifestOf(blobId).get());
+        if (!Boolean.TRUE.equals(manifest.getBoolean(Constants.KEY_COMPLETE))) {
+            throw new IOException("Blob " + blobId + " is not complete");
+        }
+        long length = longOf(manifest, Constants.KEY_LENGTH);
+        long storedChunkSize = longOf(manifest, Constants.KEY_CHUNK_SIZE);
+        int chunkCount = storedChunkSize <= 0 ? 0 : (int) ((length + storedChunkSize - 1) / storedChunkSize);
+        return new ChunkInputStream(blobId, chunkCount);
+    }
+
+    @Override
+    public void delete(String blobId) throws IOException {
+        DocumentSnapshot manifest = await(manifestOf(blobId).get());
+        // Plus the short final chunk, if any; deleting a missing document is a no-op.
+        int chunkCount = (int) longOf(manifest, Constants.KEY_STORED_CHUNKS) + 1;
+        WriteBatch batch = database.batch();
+        for (int index = 0; index < chunkCount; index++) {
+            batch.delete(chunkOf(blobId, index));
+        }
+        batch.delete(manifestOf(blobId));
+        await(batch.commit());
+    }
+
+    // The manifest's chunk count once the chunk at index is stored. Only full chunks count: a short
+    // one is the last, and the length stored must stay a whole number of chunks until complete()
+    // lands.
+    static int storedChunksAfter(int index, int length, int chunkSize) {
+        return length == chunkSize ? index + 1 : index;
+    }
+
+    private static long longOf(DocumentSnapshot snapshot, String field) {
+        Long value = snapshot.getLong(field);
+        return value == null ? 0 : value;
+    }
+
+    private static <T> T await(Task<T> task) throws IOException {
+        try {
+            return Tasks.await(task);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    // Fetches the next chunk only once the previous one has been read.
+    private class ChunkInputStream extends InputStream {
+        private final String blobId;
+        private final int chunkCount;
+        private int nextIndex = 0;
+        private byte[] chunk = new byte[0];
+        private int position = 0;
+
+        ChunkInputStream(String blobId, int chunkCount) {
+            this.blobId = blobId;
+            this.chunkCount = chunkCount;
+        }
+
+        private boolean fill() throws IOException {
+            while (position == chunk.length) {
+                if (nextIndex == chunkCount) {
+                    return false;
+                }
+                Blob data = await(chunkOf(blobId, nextIndex).get()).getBlob(Constants.KEY_DATA);
+                if (data == null) {
+                    throw new IOException("Blob " + blobId + " is missing chunk " + nextIndex);
+                }
+                chunk = data.toBytes();
+                position = 0;
+                nextIndex++;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? chunk[position++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(length, chunk.length - position);
+            System.arraycopy(chunk, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.sigma_chat_v2.storage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+// Blobs as files in one directory: "<id>.part" while chunks arrive, renamed to "<id>" when
+// complete. Used as the on-device copy of sent and received images, and in place of the remote
+// store in tests.
+public class LocalFileBlobStore implements BlobStore {
+
+    public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+
+    private final File directory;
+    private final int chunkSize;
+
+    public LocalFileBlobStore(File directory) {
+        this(directory, DEFAULT_CHUNK_SIZE);
+    }
+
+    public LocalFileBlobStore(File directory, int chunkSize) {
+        this.directory = directory;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    // Only complete blobs have a file; callers check isComplete() first.
+    public File fileOf(String blobId) {
+        return new File(directory, blobId);
+    }
+
+    private File partOf(String blobId) {
+        return new File(directory, blobId + ".part");
+    }
+
+    @Override
+    public long getStoredLength(String blobId) {
+        File file = fileOf(blobId);
+        if (file.exists()) {
+            return file.length();
+        }
+        // A chunk cut short by a crash is written again.
+        long length = partOf(blobId).length();
+        return length - length % chunkSize;
+    }
+
+    @Override
+    public void writeChunk(String blobId, int index, byte[] buffer, int length) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(partOf(blobId), "rw")) {
+            file.seek((long) index * chunkSize);
+            file.write(buffer, 0, length);
+            file.setLength((long) index * chunkSize + length);
+        }
+    }
+
+    @Override
+    public void complete(String blobId, long length) throws IOException {
+        File part = partOf(blobId);
+        if (part.length() != length) {
+            throw new IOException("Blob " + blobId + " has " + part.length() + " of " + length + " bytes");
+        }
+        if (!part.renameTo(fileOf(blobId))) {
+            throw new IOException("Unable to complete blob " + blobId);
+        }
+    }
+
+    @Override
+    public boolean isComplete(String blobId) {
+        return fileOf(blobId).exists();
+    }
+
+    @Override
+    public InputStream open(String blobId) throws FileNotFoundException {
+        return new FileInputStream(fileOf(blobId));
+    }
+
+    @Override
+    public void delete(String blobId) {
+        fileOf(blobId).delete();
+        partOf(blobId).delete();
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.sigma_chat_v2.storage;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Base64;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import com.example.sigma_chat_v2.models.ImageAttachment;
+import com.example.sigma_chat_v2.utilities.ImagePipeline;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Photos of image messages. Outgoing ones are staged from the picked content into the on-device
+// store and then streamed from there to the remote store, so an upload interrupted at any point,
+// even by process death, resumes from the last stored chunk. Incoming ones show their inline
+// preview at once and are replaced by the full image once it is downloaded and decoded.
+public class MessageImageStore {
+
+    public interface UploadCallback {
+        void onUploadFinished(boolean success);
+    }
+
+    // Shorter side of decoded message images; a bubble is at most about two thirds of the screen.
+    public static final int DISPLAY_SIZE = 480;
+    private static final int PREVIEW_SIZE = 24;
+    private static final int PREVIEW_QUALITY = 40;
+
+    private static MessageImageStore instance = null;
+
+    private final ContentResolver contentResolver;
+    private final LocalFileBlobStore localStore;
+    private final BlobStore remoteStore;
+    private final LruCache<String, Bitmap> memoryCache;
+    // Rows waiting for each blob being loaded, so one download serves them all.
+    private final HashMap<String, List<ImageView>> pendingLoads = new HashMap<>();
+    private final ExecutorService uploadExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService loadExecutor = Executors.newFixedThreadPool(2);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public static synchronized MessageImageStore getInstance(Context context) {
+        if (instance == null) {
+            Context applicationContext = context.getApplicationContext();
+            instance = new MessageImageStore(
+                    applicationContext.getContentResolver(),
+                    new LocalFileBlobStore(new File(applicationContext.getCacheDir(), "blobs")),
+                    new FirestoreChunkBlobStore(FirebaseFirestore.getInstance())
+            );
+        }
+        return instance;
+    }
+
+    MessageImageStore(ContentResolver contentResolver, LocalFileBlobStore localStore, BlobStore remoteStore) {
+        this.contentResolver = contentResolver;
+        this.localStore = localStore;
+        this.remoteStore = remoteStore;
+        // A sixteenth of the heap, counted in KB like the avatar cache.
+        int maxKilobytes = (int) (Runtime.getRuntime().maxMemory() / 1024 / 16);
+        memoryCache = new LruCache<String, Bitmap>(maxKilobytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return Math.max(1, bitmap.getAllocationByteCount() / 1024);
+            }
+        };
+    }
+
+    // Blocking. The inline preview for a decoded image, a few hundred bytes of Base64 WebP.
+    @SuppressWarnings("deprecation")
+    public static String encodePreview(Bitmap bitmap) {
+        float scale = (float) PREVIEW_SIZE / Math.max(bitmap.getWidth(), bitmap.getHeight());
+        Bitmap preview = Bitmap.createScaledBitmap(bitmap,
+                Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                Math.max(1, Math.round(bitmap.getHeight() * scale)),
+                true);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        preview.compress(Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                        ? Bitmap.CompressFormat.WEBP_LOSSY
+                        : Bitmap.CompressFormat.WEBP,
+                PREVIEW_QUALITY, outputStream);
+        if (preview != bitmap) {
+            preview.recycle();
+        }
+        return Base64.encodeToString(outputStream.toByteArray(), Base64.NO_WRAP);
+    }
+
+    // The sender already has the decoded image, so its own row never waits for the upload.
+    public void putDecoded(String blobId, Bitmap bitmap) {
+        memoryCache.put(blobId, bitmap);
+    }
+
+    public void upload(String blobId, Uri source, UploadCallback callback) {
+        uploadExecutor.execute(() -> {
+            boolean success = false;
+            try {
+                if (!localStore.isComplete(blobId)) {
+                    try (InputStream inputStream = contentResolver.openInputStream(source)) {
+                        if (inputStream == null) {
+                            throw new IOException("Unable to open " + source);
+                        }
+                        BlobTransfer.copy(inputStream, blobId, localStore, null);
+                    }
+                }
+                try (InputStream inputStream = localStore.open(blobId)) {
+                    BlobTransfer.copy(inputStream, blobId, remoteStore, null);
+                }
+                success = true;
+            } catch (IOException | RuntimeException e) {
+                Log.w("MessageImageStore", "Upload of " + blobId + " stopped, will resume", e);
+            }
+            boolean uploaded = success;
+            mainHandler.post(() -> callback.onUploadFinished(uploaded));
+        });
+    }
+
+    public void load(ImageAttachment image, ImageView target) {
+        target.setTag(image.blobId);
+        Bitmap cached = memoryCache.get(image.blobId);
+        if (cached != null) {
+            target.setImageBitmap(cached);
+            return;
+        }
+        target.setImageBitmap(previewOf(image));
+        List<ImageView> waiting = pendingLoads.get(image.blobId);
+        if (waiting != null) {
+            waiting.add(target);
+            return;
+        }
+        waiting = new ArrayList<>();
+        waiting.add(target);
+        pendingLoads.put(image.blobId, waiting);
+        loadExecutor.execute(() -> {
+            Bitmap bitmap = null;
+            try {
+                if (!localStore.isComplete(image.blobId)) {
+                    try (InputStream inputStream = remoteStore.open(image.blobId)) {
+                        BlobTransfer.copy(inputStream, image.blobId, localStore, null);
+                    }
+                }
+                bitmap = ImagePipeline.getInstance().decodeSampled(
+                        contentResolver, Uri.fromFile(localStore.fileOf(image.blobId)), DISPLAY_SIZE);
+            } catch (IOException | RuntimeException e) {
+                Log.w("MessageImageStore", "Unable to load " + image.blobId, e);
+            }
+            Bitmap decoded = bitmap;
+            mainHandler.post(() -> deliver(image.blobId, decoded));
+        });
+    }
+
+    private void deliver(String blobId, Bitmap bitmap) {
+        List<ImageView> waiting = pendingLoads.remove(blobId);
+        if (bitmap == null || waiting == null) {
+            // The preview stays; the next bind tries again.
+            return;
+        }
+        memoryCache.put(blobId, bitmap);
+        for (ImageView target : waiting) {
+            if (blobId.equals(target.getTag())) {
+                target.setImageBitmap(bitmap);
+            }
+        }
+    }
+
+    private Bitmap previewOf(ImageAttachment image) {
+        if (image.preview == null || image.preview.isEmpty()) {
+            return null;
+        }
+        String key = "p:" + image.blobId;
+        Bitmap bitmap = memoryCache.get(key);
+        if (bitmap == null) {
+            try {
+                byte[] bytes = Base64.decode(image.preview, Base64.DEFAULT);
+                bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+            } catch (IllegalArgumentException e) {
+                bitmap = null;
+            }
+            if (bitmap != null) {
+                memoryCache.put(key, bitmap);
+            }
+        }
+        return bitmap;
+    }
+
+    public void clear() {
+        memoryCache.evictAll();
+    }
+}
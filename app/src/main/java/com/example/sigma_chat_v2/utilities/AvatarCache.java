@@ -0,0 +1,237 @@
+package com.example.sigma_chat_v2.utilities;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Base64;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class AvatarCache {
+
+    public interface Callback {
+        void onAvatarLoaded(Bitmap bitmap);
+    }
+
+    private interface BytesLoader {
+        byte[] load() throws Exception;
+    }
+
+    private static AvatarCache instance = null;
+
+    private final AvatarStore avatarStore;
+    private final LruCache<String, Bitmap> memoryCache;
+    private final HashMap<String, List<Callback>> pendingDecodes = new HashMap<>();
+    private final ExecutorService decodeExecutor = Executors.newFixedThreadPool(2);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private int decodeCount = 0;
+    private int decodeFailureCount = 0;
+
+    public static synchronized AvatarCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new AvatarCache(AvatarStore.getInstance(context));
+        }
+        return instance;
+    }
+
+    private AvatarCache(AvatarStore avatarStore) {
+        this.avatarStore = avatarStore;
+        // An eighth of the heap, counted in KB so large lists cannot push us into OOM.
+        int maxKilobytes = (int) (Runtime.getRuntime().maxMemory() / 1024 / 8);
+        memoryCache = new LruCache<String, Bitmap>(maxKilobytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return Math.max(1, bitmap.getAllocationByteCount() / 1024);
+            }
+        };
+    }
+
+    // Documents written before avatars moved to the content-addressed store only carry the Base64
+    // image.
+    public static String keyOf(String userId, String imageHash, String encodedImage, AvatarVariant variant) {
+        if (imageHash != null && !imageHash.isEmpty()) {
+            return userId + ":" + variant.documentId(imageHash);
+        }
+        if (encodedImage != null && !encodedImage.isEmpty()) {
+            return userId + ":" + Integer.toHexString(encodedImage.hashCode()) + ":" + encodedImage.length();
+        }
+        return null;
+    }
+
+    public Bitmap getCached(String userId, String imageHash, String encodedImage, AvatarVariant variant) {
+        String key = keyOf(userId, imageHash, encodedImage, variant);
+        return key == null ? null : memoryCache.get(key);
+    }
+
+    public void load(String userId, String imageHash, String encodedImage, ImageView target) {
+        load(userId, imageHash, encodedImage, null, target);
+    }
+
+    // Shows the inline placeholder, if any, while the smallest variant that fits the target loads.
+    public void load(String userId, String imageHash, String encodedImage, String placeholder, ImageView target) {
+        AvatarVariant variant = variantFor(target);
+        String key = keyOf(userId, imageHash, encodedImage, variant);
+        target.setTag(key);
+        if (key == null) {
+            target.setImageBitmap(null);
+            return;
+        }
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            target.setImageBitmap(cached);
+            return;
+        }
+        target.setImageBitmap(placeholderFor(placeholder));
+        decode(key, loaderFor(imageHash, encodedImage, variant), bitmap -> {
+            if (key.equals(target.getTag())) {
+                target.setImageBitmap(bitmap);
+            }
+        });
+    }
+
+    public void load(String userId, String imageHash, String encodedImage, AvatarVariant variant, Callback callback) {
+        String key = keyOf(userId, imageHash, encodedImage, variant);
+        if (key == null) {
+            callback.onAvatarLoaded(null);
+            return;
+        }
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            callback.onAvatarLoaded(cached);
+            return;
+        }
+        decode(key, loaderFor(imageHash, encodedImage, variant), callback);
+    }
+
+    // Fixed sizes come from the layout; anything else is measured, or unknown before the first
+    // layout.
+    private static AvatarVariant variantFor(ImageView target) {
+        ViewGroup.LayoutParams layoutParams = target.getLayoutParams();
+        int size = 0;
+        if (layoutParams != null) {
+            size = Math.max(layoutParams.width, layoutParams.height);
+        }
+        if (size <= 0) {
+            size = Math.max(target.getWidth(), target.getHeight());
+        }
+        return AvatarVariant.forViewSize(size);
+    }
+
+    // Placeholders are a few hundred bytes, so they are decoded inline on the main thread.
+    private Bitmap placeholderFor(String placeholder) {
+        if (placeholder == null || placeholder.isEmpty()) {
+            return null;
+        }
+        String key = "p:" + placeholder;
+        Bitmap bitmap = memoryCache.get(key);
+        if (bitmap == null) {
+            try {
+                byte[] bytes = Base64.decode(placeholder, Base64.DEFAULT);
+                bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+            } catch (IllegalArgumentException e) {
+                bitmap = null;
+            }
+            if (bitmap != null) {
+                memoryCache.put(key, bitmap);
+            }
+        }
+        return bitmap;
+    }
+
+    private BytesLoader loaderFor(String imageHash, String encodedImage, AvatarVariant variant) {
+        if (imageHash != null && !imageHash.isEmpty()) {
+            return () -> avatarStore.fetch(imageHash, variant);
+        }
+        return () -> Base64.decode(encodedImage, Base64.DEFAULT);
+    }
+
+    private void decode(String key, BytesLoader loader, Callback callback) {
+        List<Callback> waiting = pendingDecodes.get(key);
+        if (waiting != null) {
+            waiting.add(callback);
+            return;
+        }
+        waiting = new ArrayList<>();
+        waiting.add(callback);
+        pendingDecodes.put(key, waiting);
+        decodeExecutor.execute(() -> {
+            Bitmap bitmap = decodeBytes(loader);
+            mainHandler.post(() -> deliver(key, bitmap));
+        });
+    }
+
+    private void deliver(String key, Bitmap bitmap) {
+        decodeCount++;
+        if (bitmap != null) {
+            memoryCache.put(key, bitmap);
+        } else {
+            decodeFailureCount++;
+        }
+        List<Callback> waiting = pendingDecodes.remove(key);
+        if (waiting != null) {
+            for (Callback callback : waiting) {
+                callback.onAvatarLoaded(bitmap);
+            }
+        }
+    }
+
+    private static Bitmap decodeBytes(BytesLoader loader) {
+        try {
+            byte[] bytes = loader.load();
+            if (bytes == null) {
+                return null;
+            }
+            return BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+        } catch (Exception e) {
+            Log.e("AvatarCache", "Failed to load avatar", e);
+            return null;
+        }
+    }
+
+    public int getHitCount() {
+        return memoryCache.hitCount();
+    }
+
+    public int getMissCount() {
+        return memoryCache.missCount();
+    }
+
+    public int getEvictionCount() {
+        return memoryCache.evictionCount();
+    }
+
+    public int getDecodeCount() {
+        return decodeCount;
+    }
+
+    public int getDecodeFailureCount() {
+        return decodeFailureCount;
+    }
+
+    public int getSizeKilobytes() {
+        return memoryCache.size();
+    }
+
+    public String getStats() {
+        return "hits=" + getHitCount()
+                + " misses=" + getMissCount()
+                + " evictions=" + getEvictionCount()
+                + " decodes=" + decodeCount
+                + " failures=" + decodeFailureCount
+                + " sizeKb=" + memoryCache.size() + "/" + memoryCache.maxSize();
+    }
+
+    public void clear() {
+        memoryCache.evictAll();
+    }
+}
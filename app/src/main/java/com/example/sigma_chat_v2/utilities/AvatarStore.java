@@ -0,0 +1,195 @@
+package com.example.sigma_chat_v2.utilities;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import android.os.Build;
+import android.util.Base64;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+
+public class AvatarStore {
+
+    // The renditions of one picked image, ready to be written with the user document.
+    public static class AvatarUpload {
+        public final String hash;
+        public final String placeholder;
+        final byte[] thumbnail;
+        final byte[] profile;
+
+        AvatarUpload(String hash, String placeholder, byte[] thumbnail, byte[] profile) {
+            this.hash = hash;
+            this.placeholder = placeholder;
+            this.thumbnail = thumbnail;
+            this.profile = profile;
+        }
+    }
+
+    private static AvatarStore instance = null;
+
+    private final File directory;
+
+    public static synchronized AvatarStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new AvatarStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AvatarStore(Context context) {
+        directory = new File(context.getCacheDir(), "avatars");
+    }
+
+    public static String hashOf(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+                builder.append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // CPU bound: call off the main thread. Encodes every variant of the source, keyed by the hash
+    // of the profile rendition, and keeps the stored ones on disk so this device never downloads
+    // them.
+    public AvatarUpload prepare(Bitmap source) {
+        byte[] profile = encode(source, AvatarVariant.PROFILE);
+        byte[] thumbnail = encode(source, AvatarVariant.THUMBNAIL);
+        byte[] placeholder = encode(source, AvatarVariant.PLACEHOLDER);
+        String hash = hashOf(profile);
+        write(AvatarVariant.PROFILE.documentId(hash), profile);
+        write(AvatarVariant.THUMBNAIL.documentId(hash), thumbnail);
+        return new AvatarUpload(hash, Base64.encodeToString(placeholder, Base64.NO_WRAP), thumbnail, profile);
+    }
+
+    // Center square of the source, scaled down to the variant size.
+    private static byte[] encode(Bitmap source, AvatarVariant variant) {
+        int side = Math.min(source.getWidth(), source.getHeight());
+        int size = Math.min(variant.size, side);
+        Matrix matrix = new Matrix();
+        matrix.setScale((float) size / side, (float) size / side);
+        Bitmap scaled = Bitmap.createBitmap(source,
+                (source.getWidth() - side) / 2, (source.getHeight() - side) / 2, side, side, matrix, true);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        scaled.compress(webp(), variant.quality, outputStream);
+        if (scaled != source) {
+            scaled.recycle();
+        }
+        return outputStream.toByteArray();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat webp() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY
+                : Bitmap.CompressFormat.WEBP;
+    }
+
+    public byte[] read(String name) {
+        File file = new File(directory, name);
+        if (!file.exists()) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) file.length()];
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = inputStream.read(bytes, offset, bytes.length - offset);
+                if (read < 0) {
+                    return null;
+                }
+                offset += read;
+            }
+            return bytes;
+        } catch (IOException e) {
+            Log.w("AvatarStore", "Unable to read avatar " + name, e);
+            return null;
+        }
+    }
+
+    // Blocking: must be called off the main thread. Disk first, then the avatars collection.
+    // Avatars uploaded before variants existed only have the profile document.
+    public byte[] fetch(String hash, AvatarVariant variant) throws Exception {
+        String name = variant.documentId(hash);
+        byte[] bytes = read(name);
+        if (bytes != null) {
+            return bytes;
+        }
+        DocumentSnapshot snapshot = Tasks.await(
+                FirebaseFirestore.getInstance()
+                        .collection(Constants.KEY_COLLECTION_AVATARS)
+                        .document(name)
+                        .get()
+        );
+        String encodedImage = snapshot.getString(Constants.KEY_IMAGE);
+        if (encodedImage == null) {
+            if (variant == AvatarVariant.PROFILE) {
+                return null;
+            }
+            // Stored under the variant name too, so the missing document is only looked up once.
+            bytes = fetch(hash, AvatarVariant.PROFILE);
+            if (bytes != null) {
+                write(name, bytes);
+            }
+            return bytes;
+        }
+        bytes = Base64.decode(encodedImage, Base64.DEFAULT);
+        write(name, bytes);
+        return bytes;
+    }
+
+    public void addUpload(WriteBatch batch, AvatarUpload upload) {
+        addVariant(batch, AvatarVariant.PROFILE.documentId(upload.hash), upload.profile);
+        addVariant(batch, AvatarVariant.THUMBNAIL.documentId(upload.hash), upload.thumbnail);
+    }
+
+    private static void addVariant(WriteBatch batch, String documentId, byte[] bytes) {
+        DocumentReference avatarReference = FirebaseFirestore.getInstance()
+                .collection(Constants.KEY_COLLECTION_AVATARS)
+                .document(documentId);
+        HashMap<String, Object> avatar = new HashMap<>();
+        avatar.put(Constants.KEY_IMAGE, Base64.encodeToString(bytes, Base64.DEFAULT));
+        batch.set(avatarReference, avatar);
+    }
+
+    private void write(String name, byte[] bytes) {
+        File target = new File(directory, name);
+        if (target.exists()) {
+            return;
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.w("AvatarStore", "Unable to create " + directory);
+            return;
+        }
+        File temp = new File(directory, name + ".tmp");
+        try (FileOutputStream outputStream = new FileOutputStream(temp)) {
+            outputStream.write(bytes);
+        } catch (IOException e) {
+            Log.w("AvatarStore", "Unable to write avatar " + name, e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+        }
+    }
+}
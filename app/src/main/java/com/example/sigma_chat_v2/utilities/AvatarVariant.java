@@ -0,0 +1,34 @@
+package com.example.sigma_chat_v2.utilities;
+
+// Square WebP renditions generated once at upload. The profile rendition lives under the bare
+// content hash, where avatars uploaded before variants existed already are, so any hash can be
+// fetched as a profile; thumbnails fall back to it. The placeholder is small enough to travel
+// inline with the user document and is shown while the real rendition loads.
+public enum AvatarVariant {
+    PLACEHOLDER(12, 30, null),
+    THUMBNAIL(160, 75, "_thumb"),
+    PROFILE(480, 80, "");
+
+    public final int size;
+    public final int quality;
+    private final String suffix;
+
+    AvatarVariant(int size, int quality, String suffix) {
+        this.size = size;
+        this.quality = quality;
+        this.suffix = suffix;
+    }
+
+    // The avatars document (and local file) holding this rendition of the given hash.
+    public String documentId(String hash) {
+        if (suffix == null) {
+            throw new IllegalStateException(name() + " is not stored in the avatars collection");
+        }
+        return hash + suffix;
+    }
+
+    // The smallest stored rendition that covers a view of the given size in pixels.
+    public static AvatarVariant forViewSize(int sizePx) {
+        return sizePx > 0 && sizePx <= THUMBNAIL.size ? THUMBNAIL : PROFILE;
+    }
+}
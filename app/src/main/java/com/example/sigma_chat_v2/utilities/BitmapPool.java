@@ -0,0 +1,79 @@
+package com.example.sigma_chat_v2.utilities;
+
+import android.graphics.Bitmap;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+// Mutable bitmaps handed back after use, offered to BitmapFactory as inBitmap so decoding a new
+// image writes into memory we already own instead of allocating megabytes each time.
+public class BitmapPool {
+
+    private static final long MAX_BYTES = 8 * 1024 * 1024;
+
+    private static BitmapPool instance = null;
+
+    private final LinkedList<Bitmap> bitmaps = new LinkedList<>();
+    private long sizeBytes = 0;
+
+    public static synchronized BitmapPool getInstance() {
+        if (instance == null) {
+            instance = new BitmapPool();
+        }
+        return instance;
+    }
+
+    private BitmapPool() {
+    }
+
+    // The smallest pooled bitmap that can hold width x height pixels of the given config, or null.
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        long needed = (long) width * height * bytesPerPixel(config);
+        Bitmap best = null;
+        for (Bitmap bitmap : bitmaps) {
+            if (bitmap.getAllocationByteCount() >= needed
+                    && (best == null || bitmap.getAllocationByteCount() < best.getAllocationByteCount())) {
+                best = bitmap;
+            }
+        }
+        if (best != null) {
+            bitmaps.remove(best);
+            sizeBytes -= best.getAllocationByteCount();
+        }
+        return best;
+    }
+
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()
+                || bitmap.getAllocationByteCount() > MAX_BYTES || bitmaps.contains(bitmap)) {
+            return;
+        }
+        bitmaps.addLast(bitmap);
+        sizeBytes += bitmap.getAllocationByteCount();
+        Iterator<Bitmap> oldest = bitmaps.iterator();
+        while (sizeBytes > MAX_BYTES && oldest.hasNext()) {
+            Bitmap evicted = oldest.next();
+            oldest.remove();
+            sizeBytes -= evicted.getAllocationByteCount();
+            evicted.recycle();
+        }
+    }
+
+    public synchronized void clear() {
+        for (Bitmap bitmap : bitmaps) {
+            bitmap.recycle();
+        }
+        bitmaps.clear();
+        sizeBytes = 0;
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+            return 2;
+        }
+        if (config == Bitmap.Config.ALPHA_8) {
+            return 1;
+        }
+        return 4;
+    }
+}
@@ -17,6 +17,7 @@ public class Constants {
     public static final String KEY_SENDER_ID = "senderId";
     public static final String KEY_RECEIVER_ID = "receiverId";
     public static final String KEY_MESSAGE = "message";
+    public static final String KEY_MESSAGE_ID = "messageId";
     public static final String KEY_TIMESTAMP = "timestamp";
     public static final String KEY_COLLECTION_CONVERSATIONS = "conversations";
     public static final String KEY_SENDER_NAME = "senderName";
@@ -24,8 +25,33 @@ public class Constants {
     public static final String KEY_SENDER_IMAGE = "senderImage";
     public static final String KEY_RECEIVER_IMAGE = "receiverImage";
     public static final String KEY_LAST_MESSAGE = "lastMessage";
+    public static final String KEY_COLLECTION_AVATARS = "avatars";
+    public static final String KEY_IMAGE_HASH = "imageHash";
+    public static final String KEY_IMAGE_PLACEHOLDER = "imagePlaceholder";
+    public static final String KEY_SENDER_IMAGE_HASH = "senderImageHash";
+    public static final String KEY_RECEIVER_IMAGE_HASH = "receiverImageHash";
+    public static final String KEY_CONVERSATION_ID = "conversationId";
+    public static final String KEY_PARTICIPANTS = "participants";
+    public static final String KEY_CONVERSATION_MIGRATION_DONE = "conversationMigrationDone";
+    public static final String KEY_COLLECTION_DIRECTORY = "directory";
+    public static final String KEY_NAME_LOWER = "nameLower";
+    public static final String KEY_DIRECTORY_PUBLISHED = "directoryPublished";
+    public static final String KEY_IMAGE_BLOB_ID = "imageBlobId";
+    public static final String KEY_IMAGE_PREVIEW = "imagePreview";
+    public static final String KEY_IMAGE_WIDTH = "imageWidth";
+    public static final String KEY_IMAGE_HEIGHT = "imageHeight";
+    public static final String KEY_COLLECTION_BLOBS = "blobs";
+    public static final String KEY_COLLECTION_CHUNKS = "chunks";
+    public static final String KEY_CHUNK_SIZE = "chunkSize";
+    public static final String KEY_STORED_CHUNKS = "storedChunks";
+    public static final String KEY_LENGTH = "length";
+    public static final String KEY_COMPLETE = "complete";
+    public static final String KEY_DATA = "data";
+    // Conversation list and notification text for a message that is only a photo.
+    public static final String IMAGE_MESSAGE_SUMMARY = "\uD83D\uDCF7";
 
     public static final String KEY_AVAILABILITY = "availability";
+    public static final String KEY_LAST_SEEN = "lastSeen";
     public static final String REMOTE_MSG_AUTHORIZATION = "Authorization";
     public static final String REMOTE_MSG_CONTENT_TYPE = "Content-Type";
     public static final String REMOTE_MSG_DATA = "data";
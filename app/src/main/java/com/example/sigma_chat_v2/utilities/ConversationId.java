@@ -0,0 +1,25 @@
+package com.example.sigma_chat_v2.utilities;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class ConversationId {
+
+    private ConversationId() {
+    }
+
+    // Order-independent, so both participants derive the same id without a lookup.
+    public static String of(String firstUserId, String secondUserId) {
+        if (firstUserId.compareTo(secondUserId) <= 0) {
+            return firstUserId + "_" + secondUserId;
+        }
+        return secondUserId + "_" + firstUserId;
+    }
+
+    public static List<String> participantsOf(String firstUserId, String secondUserId) {
+        if (firstUserId.compareTo(secondUserId) <= 0) {
+            return Arrays.asList(firstUserId, secondUserId);
+        }
+        return Arrays.asList(secondUserId, firstUserId);
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.sigma_chat_v2.utilities;
+
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import com.example.sigma_chat_v2.models.ConversationSummary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+
+// Recent conversations keyed by Firestore document id and kept newest first. An update finds its
+// row through the map and a binary search, moves only that row, and reports the move to a
+// ListUpdateCallback so the adapter rebinds one item instead of the whole list.
+public class ConversationIndex {
+
+    public static final Comparator<ConversationSummary> ORDER = (obj1, obj2) -> {
+        int compare = Long.compare(obj2.timestamp, obj1.timestamp);
+        if (compare != 0) {
+            return compare;
+        }
+        return obj1.id.compareTo(obj2.id);
+    };
+
+    private final List<ConversationSummary> conversations = new ArrayList<>();
+    private final HashMap<String, ConversationSummary> conversationsById = new HashMap<>();
+    private ListUpdateCallback updateCallback;
+
+    public void setUpdateCallback(ListUpdateCallback updateCallback) {
+        this.updateCallback = updateCallback;
+    }
+
+    public int size() {
+        return conversations.size();
+    }
+
+    public boolean isEmpty() {
+        return conversations.isEmpty();
+    }
+
+    public ConversationSummary get(int position) {
+        return conversations.get(position);
+    }
+
+    public int indexOf(String documentId) {
+        ConversationSummary conversation = conversationsById.get(documentId);
+        if (conversation == null) {
+            return -1;
+        }
+        int position = Collections.binarySearch(conversations, conversation, ORDER);
+        return position < 0 ? -1 : position;
+    }
+
+    // Inserts a new conversation or replaces the row with the same document id.
+    public int upsert(ConversationSummary conversation) {
+        int from = indexOf(conversation.id);
+        conversationsById.put(conversation.id, conversation);
+        if (from < 0) {
+            int position = insertionPoint(conversation);
+            conversations.add(position, conversation);
+            if (updateCallback != null) {
+                updateCallback.onInserted(position, 1);
+            }
+            return position;
+        }
+        if (ORDER.compare(conversations.get(from), conversation) == 0) {
+            conversations.set(from, conversation);
+            if (updateCallback != null) {
+                updateCallback.onChanged(from, 1, null);
+            }
+            return from;
+        }
+        conversations.remove(from);
+        int to = insertionPoint(conversation);
+        conversations.add(to, conversation);
+        if (updateCallback != null) {
+            if (from != to) {
+                updateCallback.onMoved(from, to);
+            }
+            updateCallback.onChanged(to, 1, null);
+        }
+        return to;
+    }
+
+    public boolean remove(String documentId) {
+        int position = indexOf(documentId);
+        if (position < 0) {
+            return false;
+        }
+        conversations.remove(position);
+        conversationsById.remove(documentId);
+        if (updateCallback != null) {
+            updateCallback.onRemoved(position, 1);
+        }
+        return true;
+    }
+
+    // Makes the index hold exactly the given conversations, touching only rows that differ.
+    public void replaceAll(List<ConversationSummary> replacement) {
+        if (conversations.isEmpty()) {
+            if (replacement.isEmpty()) {
+                return;
+            }
+            List<ConversationSummary> sorted = new ArrayList<>(replacement);
+            Collections.sort(sorted, ORDER);
+            conversations.addAll(sorted);
+            for (ConversationSummary conversation : sorted) {
+                conversationsById.put(conversation.id, conversation);
+            }
+            if (updateCallback != null) {
+                updateCallback.onInserted(0, sorted.size());
+            }
+            return;
+        }
+        HashSet<String> kept = new HashSet<>();
+        for (ConversationSummary conversation : replacement) {
+            kept.add(conversation.id);
+        }
+        for (int i = conversations.size() - 1; i >= 0; i--) {
+            if (!kept.contains(conversations.get(i).id)) {
+                remove(conversations.get(i).id);
+            }
+        }
+        for (ConversationSummary conversation : replacement) {
+            ConversationSummary existing = conversationsById.get(conversation.id);
+            if (existing == null || !sameContents(existing, conversation)) {
+                upsert(conversation);
+            }
+        }
+    }
+
+    public void clear() {
+        int count = conversations.size();
+        if (count == 0) {
+            return;
+        }
+        conversations.clear();
+        conversationsById.clear();
+        if (updateCallback != null) {
+            updateCallback.onRemoved(0, count);
+        }
+    }
+
+    private static boolean sameContents(ConversationSummary obj1, ConversationSummary obj2) {
+        return obj1.timestamp == obj2.timestamp
+                && Objects.equals(obj1.lastMessage, obj2.lastMessage)
+                && Objects.equals(obj1.otherName, obj2.otherName)
+                && Objects.equals(obj1.otherImageHash, obj2.otherImageHash)
+                && Objects.equals(obj1.otherImage, obj2.otherImage);
+    }
+
+    private int insertionPoint(ConversationSummary conversation) {
+        // Fast path: an updated conversation almost always becomes the newest.
+        if (conversations.isEmpty() || ORDER.compare(conversation, conversations.get(0)) < 0) {
+            return 0;
+        }
+        int position = Collections.binarySearch(conversations, conversation, ORDER);
+        return position < 0 ? -(position + 1) : position;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.sigma_chat_v2.utilities;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// Canonical instances of user ids. There are only as many distinct ids as users the device has
+// talked to, so the pool stays small while every message shares the same two strings.
+public final class IdPool {
+
+    private static final ConcurrentHashMap<String, String> ids = new ConcurrentHashMap<>();
+
+    private IdPool() {
+    }
+
+    public static String intern(String id) {
+        if (id == null) {
+            return null;
+        }
+        String existing = ids.putIfAbsent(id, id);
+        return existing == null ? id : existing;
+    }
+}
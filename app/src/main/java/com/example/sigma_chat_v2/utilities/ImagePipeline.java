@@ -0,0 +1,155 @@
+package com.example.sigma_chat_v2.utilities;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Decodes user-picked images off the main thread at roughly the size they will be shown: the
+// bounds are read first, the pixels decoded with a power-of-two inSampleSize into a pooled
+// inBitmap, and the EXIF orientation applied afterwards. A 12MP photo wanted at 480px, as avatars
+// and message images are, decodes at 1000x750 and costs 3MB instead of 48MB. BitmapFactory is used
+// on every API level because ImageDecoder cannot decode into an existing bitmap.
+public class ImagePipeline {
+
+    public interface Callback {
+        void onDecoded(Bitmap bitmap);
+    }
+
+    private static ImagePipeline instance = null;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final BitmapPool bitmapPool = BitmapPool.getInstance();
+
+    public static synchronized ImagePipeline getInstance() {
+        if (instance == null) {
+            instance = new ImagePipeline();
+        }
+        return instance;
+    }
+
+    private ImagePipeline() {
+    }
+
+    // Delivers null on the main thread when the image cannot be read.
+    public void decode(ContentResolver contentResolver, Uri uri, int targetSize, Callback callback) {
+        executor.execute(() -> {
+            Bitmap bitmap = null;
+            try {
+                bitmap = decodeSampled(contentResolver, uri, targetSize);
+            } catch (IOException | RuntimeException e) {
+                Log.e("ImagePipeline", "Failed to decode " + uri, e);
+            }
+            Bitmap decoded = bitmap;
+            mainHandler.post(() -> callback.onDecoded(decoded));
+        });
+    }
+
+    // Hands a bitmap that is no longer displayed back for reuse by the next decode.
+    public void release(Bitmap bitmap) {
+        bitmapPool.put(bitmap);
+    }
+
+    // The returned bitmap is at least targetSize on its shorter side unless the source is smaller.
+    public Bitmap decodeSampled(ContentResolver contentResolver, Uri uri, int targetSize) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream inputStream = contentResolver.openInputStream(uri)) {
+            BitmapFactory.decodeStream(inputStream, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        int orientation = readOrientation(contentResolver, uri);
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSizeFor(options.outWidth, options.outHeight, targetSize);
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inMutable = true;
+        int sampledWidth = (options.outWidth + options.inSampleSize - 1) / options.inSampleSize;
+        int sampledHeight = (options.outHeight + options.inSampleSize - 1) / options.inSampleSize;
+        options.inBitmap = bitmapPool.get(sampledWidth, sampledHeight, options.inPreferredConfig);
+        Bitmap bitmap;
+        try (InputStream inputStream = contentResolver.openInputStream(uri)) {
+            bitmap = BitmapFactory.decodeStream(inputStream, null, options);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap did not fit after all; decode into a fresh one.
+            bitmapPool.put(options.inBitmap);
+            options.inBitmap = null;
+            try (InputStream inputStream = contentResolver.openInputStream(uri)) {
+                bitmap = BitmapFactory.decodeStream(inputStream, null, options);
+            }
+        }
+        if (bitmap == null) {
+            return null;
+        }
+        return applyOrientation(bitmap, orientation);
+    }
+
+    static int sampleSizeFor(int width, int height, int targetSize) {
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= targetSize && height / (sampleSize * 2) >= targetSize) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static int readOrientation(ContentResolver contentResolver, Uri uri) {
+        try (InputStream inputStream = contentResolver.openInputStream(uri)) {
+            if (inputStream == null) {
+                return ExifInterface.ORIENTATION_NORMAL;
+            }
+            return new ExifInterface(inputStream).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException | RuntimeException e) {
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    private Bitmap applyOrientation(Bitmap bitmap, int orientation) {
+        Matrix matrix = new Matrix();
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.setScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.setRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.setScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.setRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.setRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.setRotate(-90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.setRotate(-90);
+                break;
+            default:
+                return bitmap;
+        }
+        Bitmap oriented = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        if (oriented != bitmap) {
+            bitmapPool.put(bitmap);
+        }
+        return oriented;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.sigma_chat_v2.utilities;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Process-wide, in-memory metrics: counters plus distributions that keep count/sum/min/max and a
+// ring of recent samples for percentiles. Cheap enough to record from any thread on hot paths.
+public class MetricsRegistry {
+
+    private static final int SAMPLE_WINDOW = 128;
+
+    private static MetricsRegistry instance = null;
+
+    private final TreeMap<String, Distribution> distributions = new TreeMap<>();
+    private final TreeMap<String, long[]> counters = new TreeMap<>();
+
+    public static synchronized MetricsRegistry getInstance() {
+        if (instance == null) {
+            instance = new MetricsRegistry();
+        }
+        return instance;
+    }
+
+    public static class Distribution {
+        private final long[] samples = new long[SAMPLE_WINDOW];
+        private int sampleCount = 0;
+        private long count = 0;
+        private long sum = 0;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        private void add(long value) {
+            samples[(int) (count % SAMPLE_WINDOW)] = value;
+            sampleCount = Math.min(sampleCount + 1, SAMPLE_WINDOW);
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMin() {
+            return count == 0 ? 0 : min;
+        }
+
+        public long getMax() {
+            return count == 0 ? 0 : max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        // Percentile over the most recent SAMPLE_WINDOW samples.
+        public long getPercentile(double percentile) {
+            if (sampleCount == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * sampleCount) - 1;
+            return sorted[Math.max(0, Math.min(index, sampleCount - 1))];
+        }
+
+        private Distribution copy() {
+            Distribution copy = new Distribution();
+            System.arraycopy(samples, 0, copy.samples, 0, SAMPLE_WINDOW);
+            copy.sampleCount = sampleCount;
+            copy.count = count;
+            copy.sum = sum;
+            copy.min = min;
+            copy.max = max;
+            return copy;
+        }
+    }
+
+    public synchronized void record(String name, long value) {
+        Distribution distribution = distributions.get(name);
+        if (distribution == null) {
+            distribution = new Distribution();
+            distributions.put(name, distribution);
+        }
+        distribution.add(value);
+    }
+
+    public void increment(String name) {
+        add(name, 1);
+    }
+
+    public synchronized void add(String name, long delta) {
+        long[] counter = counters.get(name);
+        if (counter == null) {
+            counter = new long[1];
+            counters.put(name, counter);
+        }
+        counter[0] += delta;
+    }
+
+    public synchronized long getCounter(String name) {
+        long[] counter = counters.get(name);
+        return counter == null ? 0 : counter[0];
+    }
+
+    public synchronized Distribution getDistribution(String name) {
+        Distribution distribution = distributions.get(name);
+        return distribution == null ? new Distribution() : distribution.copy();
+    }
+
+    public synchronized String dump() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, long[]> counter : counters.entrySet()) {
+            builder.append(counter.getKey()).append(' ').append(counter.getValue()[0]).append('\n');
+        }
+        for (Map.Entry<String, Distribution> entry : distributions.entrySet()) {
+            Distribution distribution = entry.getValue();
+            builder.append(String.format(Locale.US, "%s count=%d mean=%.1f p50=%d p95=%d max=%d%n",
+                    entry.getKey(), distribution.getCount(), distribution.getMean(),
+                    distribution.getPercentile(50), distribution.getPercentile(95), distribution.getMax()));
+        }
+        return builder.toString();
+    }
+
+    public synchronized void reset() {
+        distributions.clear();
+        counters.clear();
+    }
+}
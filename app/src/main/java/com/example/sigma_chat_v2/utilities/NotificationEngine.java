@@ -0,0 +1,251 @@
+package com.example.sigma_chat_v2.utilities;
+
+import android.annotation.SuppressLint;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.service.notification.StatusBarNotification;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.core.app.Person;
+
+import com.example.sigma_chat_v2.R;
+import com.example.sigma_chat_v2.activities.ChatActivity;
+import com.example.sigma_chat_v2.models.User;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+// Chat notifications: one per sender, tagged with the sender id so new messages update it in place,
+// showing the last few messages with MessagingStyle, all bundled under one group summary. Pushes
+// arriving in a burst are coalesced into a single update per sender. Channels are created once, at
+// application start.
+public class NotificationEngine {
+
+    public static final String CHANNEL_MESSAGES = "chat_message";
+    public static final String CHANNEL_SYNC = "sync";
+    private static final String GROUP_MESSAGES = "com.example.sigma_chat_v2.MESSAGES";
+    private static final int ID_CONVERSATION = 1;
+    private static final int ID_SUMMARY = 0;
+    private static final int MAX_HISTORY = 8;
+    // Pushes for the same sender within this window cost one notification update.
+    private static final long COALESCE_WINDOW_MS = 300;
+
+    // What a sender's notification shows; kept in memory only, so it starts over after process
+    // death.
+    private static class Conversation {
+        final String senderId;
+        String senderName;
+        String senderToken;
+        final ArrayDeque<NotificationCompat.MessagingStyle.Message> messages = new ArrayDeque<>();
+
+        Conversation(String senderId) {
+            this.senderId = senderId;
+        }
+    }
+
+    private static NotificationEngine instance = null;
+
+    private final Context context;
+    private final NotificationManagerCompat notificationManager;
+    private final PreferenceManager preferenceManager;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Insertion order is the order conversations appear in the summary.
+    private final LinkedHashMap<String, Conversation> conversations = new LinkedHashMap<>();
+    private final HashSet<String> dirty = new HashSet<>();
+    private final Runnable flushRunnable = this::flush;
+    private String visibleSenderId = null;
+    private boolean flushScheduled = false;
+
+    public static synchronized NotificationEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new NotificationEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private NotificationEngine(Context context) {
+        this.context = context;
+        notificationManager = NotificationManagerCompat.from(context);
+        preferenceManager = new PreferenceManager(context);
+    }
+
+    public void createChannels() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(
+                    CHANNEL_MESSAGES,
+                    context.getString(R.string.channel_messages),
+                    NotificationManager.IMPORTANCE_DEFAULT
+            );
+            channel.setDescription(context.getString(R.string.channel_messages_description));
+            // Only seen while a prefetch runs as a foreground service, before API 31.
+            NotificationChannel sync = new NotificationChannel(
+                    CHANNEL_SYNC,
+                    context.getString(R.string.channel_sync),
+                    NotificationManager.IMPORTANCE_MIN
+            );
+            NotificationManager manager = context.getSystemService(NotificationManager.class);
+            manager.createNotificationChannel(channel);
+            manager.createNotificationChannel(sync);
+        }
+    }
+
+    // Safe from any thread; FCM delivers on a worker.
+    public void onMessage(String senderId, String senderName, String senderToken, String message) {
+        long timestamp = System.currentTimeMillis();
+        mainHandler.post(() -> {
+            if (senderId.equals(visibleSenderId)) {
+                return;
+            }
+            Conversation conversation = conversations.get(senderId);
+            if (conversation == null || (!dirty.contains(senderId) && !isShowing(senderId))) {
+                // New, or dismissed since: start a fresh history.
+                conversations.remove(senderId);
+                conversation = new Conversation(senderId);
+            } else {
+                conversations.remove(senderId);
+            }
+            conversations.put(senderId, conversation);
+            conversation.senderName = senderName;
+            conversation.senderToken = senderToken;
+            Person sender = new Person.Builder().setKey(senderId).setName(senderName).build();
+            conversation.messages.addLast(new NotificationCompat.MessagingStyle.Message(message, timestamp, sender));
+            while (conversation.messages.size() > MAX_HISTORY) {
+                conversation.messages.removeFirst();
+            }
+            dirty.add(senderId);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                mainHandler.postDelayed(flushRunnable, COALESCE_WINDOW_MS);
+            }
+        });
+    }
+
+    // The chat with this sender is on screen, or null once it is not: while it is, its messages
+    // are no news and its notification is removed.
+    public void setVisibleSender(String senderId) {
+        mainHandler.post(() -> {
+            visibleSenderId = senderId;
+            if (senderId == null) {
+                return;
+            }
+            dirty.remove(senderId);
+            if (conversations.remove(senderId) != null) {
+                notificationManager.cancel(senderId, ID_CONVERSATION);
+                postSummary();
+            }
+        });
+    }
+
+    // Called on sign-out.
+    public void clear() {
+        mainHandler.post(() -> {
+            mainHandler.removeCallbacks(flushRunnable);
+            flushScheduled = false;
+            dirty.clear();
+            conversations.clear();
+            notificationManager.cancelAll();
+        });
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        for (String senderId : dirty) {
+            Conversation conversation = conversations.get(senderId);
+            if (conversation != null) {
+                notify(senderId, ID_CONVERSATION, buildConversation(conversation));
+            }
+        }
+        dirty.clear();
+        postSummary();
+    }
+
+    private NotificationCompat.Builder buildConversation(Conversation conversation) {
+        Person me = new Person.Builder()
+                .setName(preferenceManager.getString(Constants.KEY_NAME))
+                .build();
+        NotificationCompat.MessagingStyle style = new NotificationCompat.MessagingStyle(me);
+        for (NotificationCompat.MessagingStyle.Message message : conversation.messages) {
+            style.addMessage(message);
+        }
+        return new NotificationCompat.Builder(context, CHANNEL_MESSAGES)
+                .setSmallIcon(R.drawable.ic_notification)
+                .setStyle(style)
+                .setCategory(NotificationCompat.CATEGORY_MESSAGE)
+                .setPriority(NotificationCompat.PRIORITY_DEFAULT)
+                .setGroup(GROUP_MESSAGES)
+                .setNumber(conversation.messages.size())
+                .setWhen(conversation.messages.getLast().getTimestamp())
+                .setContentIntent(chatIntent(conversation))
+                .setAutoCancel(true);
+    }
+
+    private PendingIntent chatIntent(Conversation conversation) {
+        User user = new User();
+        user.id = conversation.senderId;
+        user.name = conversation.senderName;
+        user.token = conversation.senderToken;
+        Intent intent = new Intent(context, ChatActivity.class);
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        intent.putExtra(Constants.KEY_USER, user);
+        // One request code per sender, so every notification opens its own chat.
+        return PendingIntent.getActivity(context, conversation.senderId.hashCode(), intent,
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    // Lists the latest message of every conversation, newest first.
+    private void postSummary() {
+        if (conversations.isEmpty()) {
+            notificationManager.cancel(ID_SUMMARY);
+            return;
+        }
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle();
+        List<Conversation> newestFirst = new ArrayList<>(conversations.values());
+        int messageCount = 0;
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            Conversation conversation = newestFirst.get(i);
+            style.addLine(conversation.senderName + ": " + conversation.messages.getLast().getText());
+            messageCount += conversation.messages.size();
+        }
+        String summary = context.getResources().getQuantityString(
+                R.plurals.new_messages, messageCount, messageCount);
+        style.setSummaryText(summary);
+        notify(null, ID_SUMMARY, new NotificationCompat.Builder(context, CHANNEL_MESSAGES)
+                .setSmallIcon(R.drawable.ic_notification)
+                .setContentTitle(summary)
+                .setStyle(style)
+                .setCategory(NotificationCompat.CATEGORY_MESSAGE)
+                .setGroup(GROUP_MESSAGES)
+                .setGroupSummary(true)
+                .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_CHILDREN)
+                .setAutoCancel(true));
+    }
+
+    // Without the runtime permission on API 33+ notifications are simply not shown.
+    @SuppressLint("MissingPermission")
+    private void notify(String tag, int id, NotificationCompat.Builder builder) {
+        if (!notificationManager.areNotificationsEnabled()) {
+            return;
+        }
+        notificationManager.notify(tag, id, builder.build());
+    }
+
+    private boolean isShowing(String senderId) {
+        for (StatusBarNotification notification
+                : context.getSystemService(NotificationManager.class).getActiveNotifications()) {
+            if (notification.getId() == ID_CONVERSATION && senderId.equals(notification.getTag())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
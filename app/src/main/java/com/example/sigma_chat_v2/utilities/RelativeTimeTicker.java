@@ -0,0 +1,65 @@
+package com.example.sigma_chat_v2.utilities;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+
+// One main-thread tick at every minute boundary for everything showing relative time labels, so
+// rows never schedule their own refreshes. Runs only while someone is listening.
+public class RelativeTimeTicker {
+
+    public interface Listener {
+        void onTick(long now);
+    }
+
+    private static RelativeTimeTicker instance = null;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ArrayList<Listener> listeners = new ArrayList<>();
+    private final Runnable tickRunnable = this::tick;
+
+    public static synchronized RelativeTimeTicker getInstance() {
+        if (instance == null) {
+            instance = new RelativeTimeTicker();
+        }
+        return instance;
+    }
+
+    private RelativeTimeTicker() {
+    }
+
+    public void addListener(Listener listener) {
+        if (listeners.contains(listener)) {
+            return;
+        }
+        listeners.add(listener);
+        if (listeners.size() == 1) {
+            scheduleNext();
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+        if (listeners.isEmpty()) {
+            handler.removeCallbacks(tickRunnable);
+        }
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onTick(now);
+        }
+        if (!listeners.isEmpty()) {
+            scheduleNext();
+        }
+    }
+
+    private void scheduleNext() {
+        long now = System.currentTimeMillis();
+        long delay = TimestampFormatter.MINUTE_MS - now % TimestampFormatter.MINUTE_MS;
+        handler.removeCallbacks(tickRunnable);
+        handler.postDelayed(tickRunnable, delay);
+    }
+}
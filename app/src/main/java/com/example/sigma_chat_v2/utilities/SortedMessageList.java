@@ -0,0 +1,189 @@
+package com.example.sigma_chat_v2.utilities;
+
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import com.example.sigma_chat_v2.models.ChatMessage;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+// Keeps chat messages ordered by (timestamp, document id) with binary-search inserts and reports
+// every structural change to a ListUpdateCallback so the adapter only rebinds the affected rows.
+public class SortedMessageList {
+
+    public static final Comparator<ChatMessage> ORDER = (obj1, obj2) -> {
+        int compare = Long.compare(obj1.timestamp, obj2.timestamp);
+        if (compare != 0) {
+            return compare;
+        }
+        return obj1.messageId.compareTo(obj2.messageId);
+    };
+
+    private final List<ChatMessage> messages;
+    private final HashMap<String, ChatMessage> messagesById = new HashMap<>();
+    private ListUpdateCallback updateCallback;
+
+    public SortedMessageList(List<ChatMessage> messages) {
+        this.messages = messages;
+    }
+
+    public void setUpdateCallback(ListUpdateCallback updateCallback) {
+        this.updateCallback = updateCallback;
+    }
+
+    public int size() {
+        return messages.size();
+    }
+
+    public boolean isEmpty() {
+        return messages.isEmpty();
+    }
+
+    public ChatMessage get(int position) {
+        return messages.get(position);
+    }
+
+    public ChatMessage first() {
+        return messages.isEmpty() ? null : messages.get(0);
+    }
+
+    public ChatMessage last() {
+        return messages.isEmpty() ? null : messages.get(messages.size() - 1);
+    }
+
+    public boolean contains(String messageId) {
+        return messagesById.containsKey(messageId);
+    }
+
+    public int indexOf(String messageId) {
+        ChatMessage chatMessage = messagesById.get(messageId);
+        if (chatMessage == null) {
+            return -1;
+        }
+        int position = Collections.binarySearch(messages, chatMessage, ORDER);
+        return position < 0 ? -1 : position;
+    }
+
+    public int insert(ChatMessage chatMessage) {
+        if (messagesById.containsKey(chatMessage.messageId)) {
+            return update(chatMessage);
+        }
+        int position = insertionPoint(chatMessage);
+        messages.add(position, chatMessage);
+        messagesById.put(chatMessage.messageId, chatMessage);
+        if (updateCallback != null) {
+            updateCallback.onInserted(position, 1);
+        }
+        return position;
+    }
+
+    // Pages come back already ordered, so a page that lands entirely before or after the current
+    // window is spliced in with a single range notification.
+    public void insertAll(List<ChatMessage> page) {
+        if (page.isEmpty()) {
+            return;
+        }
+        ChatMessage pageFirst = page.get(0);
+        ChatMessage pageLast = page.get(page.size() - 1);
+        boolean disjoint = true;
+        for (ChatMessage chatMessage : page) {
+            if (messagesById.containsKey(chatMessage.messageId)) {
+                disjoint = false;
+                break;
+            }
+        }
+        if (disjoint && (messages.isEmpty() || ORDER.compare(last(), pageFirst) < 0)) {
+            int start = messages.size();
+            messages.addAll(page);
+            indexAll(page);
+            if (updateCallback != null) {
+                updateCallback.onInserted(start, page.size());
+            }
+        } else if (disjoint && ORDER.compare(pageLast, first()) < 0) {
+            messages.addAll(0, page);
+            indexAll(page);
+            if (updateCallback != null) {
+                updateCallback.onInserted(0, page.size());
+            }
+        } else {
+            for (ChatMessage chatMessage : page) {
+                insert(chatMessage);
+            }
+        }
+    }
+
+    private void indexAll(List<ChatMessage> page) {
+        for (ChatMessage chatMessage : page) {
+            messagesById.put(chatMessage.messageId, chatMessage);
+        }
+    }
+
+    public int update(ChatMessage chatMessage) {
+        int from = indexOf(chatMessage.messageId);
+        if (from < 0) {
+            return insert(chatMessage);
+        }
+        ChatMessage previous = messages.get(from);
+        messagesById.put(chatMessage.messageId, chatMessage);
+        if (ORDER.compare(previous, chatMessage) == 0) {
+            messages.set(from, chatMessage);
+            if (updateCallback != null) {
+                updateCallback.onChanged(from, 1, null);
+            }
+            return from;
+        }
+        messages.remove(from);
+        int to = insertionPoint(chatMessage);
+        messages.add(to, chatMessage);
+        if (updateCallback != null) {
+            if (from != to) {
+                updateCallback.onMoved(from, to);
+            }
+            updateCallback.onChanged(to, 1, null);
+        }
+        return to;
+    }
+
+    public boolean remove(String messageId) {
+        int position = indexOf(messageId);
+        if (position < 0) {
+            return false;
+        }
+        messages.remove(position);
+        messagesById.remove(messageId);
+        if (updateCallback != null) {
+            updateCallback.onRemoved(position, 1);
+        }
+        return true;
+    }
+
+    public void removeRange(int start, int count) {
+        if (count <= 0) {
+            return;
+        }
+        List<ChatMessage> range = messages.subList(start, start + count);
+        for (ChatMessage chatMessage : range) {
+            messagesById.remove(chatMessage.messageId);
+        }
+        range.clear();
+        if (updateCallback != null) {
+            updateCallback.onRemoved(start, count);
+        }
+    }
+
+    public void clear() {
+        removeRange(0, messages.size());
+    }
+
+    private int insertionPoint(ChatMessage chatMessage) {
+        int size = messages.size();
+        // Fast path: live messages almost always belong at the end.
+        if (size == 0 || ORDER.compare(messages.get(size - 1), chatMessage) < 0) {
+            return size;
+        }
+        int position = Collections.binarySearch(messages, chatMessage, ORDER);
+        return position < 0 ? -(position + 1) : position;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.sigma_chat_v2.utilities;
+
+import android.app.Activity;
+import android.app.ActivityManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+// Cold start milestones. The trace sections are what the :benchmark module measures next to time to
+// initial display; the first draw of a process launched for an activity is also recorded into the
+// MetricsRegistry as "startup.first_draw_ms". Work the first frame does not need is handed to
+// runAfterFirstDraw. Screens opened later, like a chat, mark their own startup the same way.
+public final class StartupTracer {
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // False when the process was started for a push or a worker; its start time says nothing then.
+    private static boolean launchedForActivity = false;
+    private static boolean firstDrawRecorded = false;
+
+    private StartupTracer() {
+    }
+
+    // Called first thing in Application.onCreate.
+    public static void onApplicationCreate() {
+        ActivityManager.RunningAppProcessInfo processInfo = new ActivityManager.RunningAppProcessInfo();
+        ActivityManager.getMyMemoryState(processInfo);
+        launchedForActivity =
+                processInfo.importance == ActivityManager.RunningAppProcessInfo.IMPORTANCE_FOREGROUND;
+    }
+
+    public static void beginSection(String sectionName) {
+        Trace.beginSection(sectionName);
+    }
+
+    public static void endSection() {
+        Trace.endSection();
+    }
+
+    // For spans that end in a later callback; only recorded on API 29+.
+    public static void beginAsyncSection(String sectionName, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(sectionName, cookie);
+        }
+    }
+
+    public static void endAsyncSection(String sectionName, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(sectionName, cookie);
+        }
+    }
+
+    // Main thread. Runs the action, traced under sectionName, once the activity's first frame has
+    // been drawn, ahead of anything else queued by then.
+    public static void runAfterFirstDraw(Activity activity, String sectionName, Runnable action) {
+        View decorView = activity.getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            private boolean drawn = false;
+
+            @Override
+            public void onDraw() {
+                if (drawn) {
+                    return;
+                }
+                drawn = true;
+                // Draw listeners cannot be removed from within onDraw.
+                mainHandler.post(() -> decorView.getViewTreeObserver().removeOnDrawListener(this));
+                mainHandler.postAtFrontOfQueue(() -> {
+                    recordFirstDraw();
+                    Trace.beginSection(sectionName);
+                    try {
+                        action.run();
+                    } finally {
+                        Trace.endSection();
+                    }
+                });
+            }
+        });
+    }
+
+    private static void recordFirstDraw() {
+        if (firstDrawRecorded) {
+            return;
+        }
+        firstDrawRecorded = true;
+        if (launchedForActivity) {
+            MetricsRegistry.getInstance().record("startup.first_draw_ms",
+                    SystemClock.uptimeMillis() - Process.getStartUptimeMillis());
+        }
+    }
+}
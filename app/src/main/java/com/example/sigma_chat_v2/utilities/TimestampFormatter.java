@@ -0,0 +1,76 @@
+package com.example.sigma_chat_v2.utilities;
+
+import android.util.LruCache;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+// Formats epoch-millis timestamps for message rows. DateTimeFormatter is immutable and thread-safe,
+// so one instance is shared; since labels only have minute precision, each minute's label is
+// formatted once and memoized.
+public final class TimestampFormatter {
+
+    public static final long MINUTE_MS = 60 * 1000;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    // Rows newer than this show a relative label.
+    public static final long RELATIVE_WINDOW_MS = HOUR_MS;
+    private static final int MAX_MEMOIZED_MINUTES = 512;
+
+    private static final LruCache<Long, String> labels = new LruCache<>(MAX_MEMOIZED_MINUTES);
+    private static volatile Pattern pattern = null;
+
+    private static final class Pattern {
+        final Locale locale;
+        final ZoneId zone;
+        final DateTimeFormatter formatter;
+
+        Pattern(Locale locale, ZoneId zone) {
+            this.locale = locale;
+            this.zone = zone;
+            this.formatter = DateTimeFormatter.ofPattern("MMMM dd, yyyy - hh:mm", locale).withZone(zone);
+        }
+    }
+
+    private TimestampFormatter() {
+    }
+
+    private static Pattern pattern() {
+        Locale locale = Locale.getDefault();
+        ZoneId zone = ZoneId.systemDefault();
+        Pattern current = pattern;
+        if (current == null || !current.locale.equals(locale) || !current.zone.equals(zone)) {
+            current = new Pattern(locale, zone);
+            pattern = current;
+            labels.evictAll();
+        }
+        return current;
+    }
+
+    public static String format(long timestamp) {
+        Pattern current = pattern();
+        Long minute = Math.floorDiv(timestamp, MINUTE_MS);
+        String label = labels.get(minute);
+        if (label == null) {
+            label = current.formatter.format(Instant.ofEpochMilli(minute * MINUTE_MS));
+            labels.put(minute, label);
+        }
+        return label;
+    }
+
+    public static boolean isRelative(long timestamp, long now) {
+        return now - timestamp < RELATIVE_WINDOW_MS;
+    }
+
+    public static String formatRelative(long timestamp, long now) {
+        long elapsed = Math.max(0, now - timestamp);
+        if (elapsed >= RELATIVE_WINDOW_MS) {
+            return format(timestamp);
+        }
+        if (elapsed < MINUTE_MS) {
+            return "just now";
+        }
+        return (elapsed / MINUTE_MS) + "m ago";
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.sigma_chat_v2.viewmodels;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+
+import com.example.sigma_chat_v2.repositories.MessageRepository;
+import com.example.sigma_chat_v2.repositories.MessageWindow;
+
+// Holds the open conversation's MessageWindow across configuration changes; the window itself is
+// cached by MessageRepository beyond this screen.
+public class ChatViewModel extends AndroidViewModel {
+
+    private final MessageRepository messageRepository;
+    private MessageWindow messageWindow;
+
+    public ChatViewModel(@NonNull Application application) {
+        super(application);
+        messageRepository = MessageRepository.getInstance(application);
+    }
+
+    public MessageWindow open(String conversationId) {
+        if (messageWindow == null) {
+            messageWindow = messageRepository.open(conversationId);
+        }
+        return messageWindow;
+    }
+
+    @Override
+    protected void onCleared() {
+        if (messageWindow != null) {
+            messageRepository.close(messageWindow);
+            messageWindow = null;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.sigma_chat_v2.viewmodels;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+
+import com.example.sigma_chat_v2.repositories.ConversationRepository;
+import com.example.sigma_chat_v2.utilities.ConversationIndex;
+
+public class ConversationsViewModel extends AndroidViewModel {
+
+    private final ConversationRepository conversationRepository;
+
+    public ConversationsViewModel(@NonNull Application application) {
+        super(application);
+        conversationRepository = ConversationRepository.getInstance(application);
+    }
+
+    public LiveData<ConversationIndex> getConversations() {
+        return conversationRepository.getConversations();
+    }
+}
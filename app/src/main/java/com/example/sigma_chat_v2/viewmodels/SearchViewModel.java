@@ -0,0 +1,51 @@
+package com.example.sigma_chat_v2.viewmodels;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.sigma_chat_v2.database.ChatDatabase;
+import com.example.sigma_chat_v2.models.MessageSearchResult;
+import com.example.sigma_chat_v2.utilities.Constants;
+import com.example.sigma_chat_v2.utilities.PreferenceManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Searches the local message index. Results of a query superseded while it ran are dropped.
+public class SearchViewModel extends AndroidViewModel {
+
+    public static final int MAX_RESULTS = 50;
+
+    private final ChatDatabase chatDatabase;
+    private final PreferenceManager preferenceManager;
+    private final MutableLiveData<List<MessageSearchResult>> results = new MutableLiveData<>();
+    private int generation = 0;
+
+    public SearchViewModel(@NonNull Application application) {
+        super(application);
+        chatDatabase = ChatDatabase.getInstance(application);
+        preferenceManager = new PreferenceManager(application);
+    }
+
+    public LiveData<List<MessageSearchResult>> getResults() {
+        return results;
+    }
+
+    public void search(String query) {
+        int requested = ++generation;
+        if (query.trim().isEmpty()) {
+            results.setValue(new ArrayList<>());
+            return;
+        }
+        String currentUserId = preferenceManager.getString(Constants.KEY_USER_ID);
+        chatDatabase.runAsync(db -> db.searchMessages(query, currentUserId, MAX_RESULTS), found -> {
+            if (requested == generation) {
+                results.setValue(found);
+            }
+        });
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.sigma_chat_v2.viewmodels;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+
+import com.example.sigma_chat_v2.models.User;
+import com.example.sigma_chat_v2.repositories.UserRepository;
+
+import java.util.List;
+
+public class UsersViewModel extends AndroidViewModel {
+
+    private final UserRepository userRepository;
+
+    public UsersViewModel(@NonNull Application application) {
+        super(application);
+        userRepository = UserRepository.getInstance(application);
+        // The repository outlives the screen; a new one opens with an empty search box.
+        userRepository.search("");
+    }
+
+    public LiveData<List<User>> getUsers() {
+        return userRepository.getUsers();
+    }
+
+    public void search(String query) {
+        userRepository.search(query);
+    }
+
+    public void loadMore() {
+        userRepository.loadMore();
+    }
+
+    public LiveData<Boolean> isLoading() {
+        return userRepository.isLoading();
+    }
+
+    public LiveData<Boolean> hasLoadFailed() {
+        return userRepository.hasLoadFailed();
+    }
+}
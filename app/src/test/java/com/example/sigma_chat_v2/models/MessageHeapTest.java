@@ -0,0 +1,80 @@
+package com.example.sigma_chat_v2.models;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// What each message of a chat keeps alive besides its own id and text, before and after the compact
+// model, counted by object identity rather than read off the heap. Ids are copied per message the
+// way a Firestore parse hands out a fresh String every time.
+public class MessageHeapTest {
+
+    private static final int MESSAGE_COUNT = 1000;
+    private static final String SENDER_ID = "Xq3vT9bLmW2pKc7RzN4a";
+    private static final String RECEIVER_ID = "Hf8sJ1dYeU6gQo5MiV0t";
+    private static final long START = 1_700_000_000_000L;
+
+    // The shape ChatMessage had before: formatted label, Date and conversation fields on every row.
+    private static class LegacyChatMessage {
+        String senderId, receiverId, message, dateTime;
+        Date dateObject;
+        String conversionId, conversionName, conversionImage;
+    }
+
+    @Test
+    public void legacyRowsEachHoldTheirOwnIdsAndDates() {
+        SimpleDateFormat format = new SimpleDateFormat("MMMM dd, yyyy - hh:mm a", Locale.US);
+        Set<Object> retained = identitySet();
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            LegacyChatMessage chatMessage = new LegacyChatMessage();
+            boolean outgoing = (i & 1) == 0;
+            chatMessage.senderId = new String(outgoing ? SENDER_ID : RECEIVER_ID);
+            chatMessage.receiverId = new String(outgoing ? RECEIVER_ID : SENDER_ID);
+            chatMessage.message = "message " + i;
+            chatMessage.dateObject = new Date(START + i * 1000L);
+            chatMessage.dateTime = format.format(chatMessage.dateObject);
+            retained.add(chatMessage.senderId);
+            retained.add(chatMessage.receiverId);
+            retained.add(chatMessage.dateObject);
+            retained.add(chatMessage.dateTime);
+        }
+
+        assertEquals(4 * MESSAGE_COUNT, retained.size());
+    }
+
+    @Test
+    public void compactRowsShareTheirIds() {
+        Set<Object> retained = identitySet();
+        List<ChatMessage> messages = new ArrayList<>(MESSAGE_COUNT);
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            boolean outgoing = (i & 1) == 0;
+            ChatMessage chatMessage = new ChatMessage(
+                    "m" + i,
+                    new String(outgoing ? SENDER_ID : RECEIVER_ID),
+                    new String(outgoing ? RECEIVER_ID : SENDER_ID),
+                    "message " + i,
+                    START + i * 1000L,
+                    SENDER_ID
+            );
+            messages.add(chatMessage);
+            retained.add(chatMessage.senderId);
+            retained.add(chatMessage.receiverId);
+        }
+
+        assertEquals(2, retained.size());
+        assertEquals(MESSAGE_COUNT, messages.size());
+    }
+
+    private static Set<Object> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.sigma_chat_v2.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.sigma_chat_v2.utilities.Constants;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.GzipSource;
+
+public class PushDispatcherTest {
+
+    private static final String SUCCESS = "{\"success\":1,\"failure\":0,\"results\":[{}]}";
+
+    private MockWebServer server;
+    private PushDispatcher dispatcher;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        ApiService apiService = ApiClient.create(server.url("/").toString()).create(ApiService.class);
+        HashMap<String, String> headers = new HashMap<>();
+        headers.put(Constants.REMOTE_MSG_CONTENT_TYPE, "application/json");
+        dispatcher = new PushDispatcher(apiService, headers, 100, 2, 10, 3);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        dispatcher.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void burstToSameRecipientIsCoalesced() throws Exception {
+        server.enqueue(new MockResponse().setBody(SUCCESS));
+        RecordingListener listener = new RecordingListener(1);
+
+        dispatcher.dispatch("token-a", "sender", "Sender", "sender-token", "one", listener);
+        dispatcher.dispatch("token-a", "sender", "Sender", "sender-token", "two", listener);
+        dispatcher.dispatch("token-a", "sender", "Sender", "sender-token", "three", listener);
+
+        assertTrue(listener.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+        RecordedRequest request = server.takeRequest();
+        assertEquals("/fcm/send", request.getPath());
+        assertEquals("gzip", request.getHeader("Content-Encoding"));
+        JSONObject data = new JSONObject(bodyOf(request)).getJSONObject(Constants.REMOTE_MSG_DATA);
+        assertEquals("3 new messages", data.getString(Constants.KEY_MESSAGE));
+        assertEquals(3, listener.delivered.get());
+    }
+
+    @Test
+    public void differentRecipientsAreSentSeparately() throws Exception {
+        server.enqueue(new MockResponse().setBody(SUCCESS));
+        server.enqueue(new MockResponse().setBody(SUCCESS));
+        RecordingListener listener = new RecordingListener(2);
+
+        dispatcher.dispatch("token-a", "sender", "Sender", "sender-token", "hi a", listener);
+        dispatcher.dispatch("token-b", "sender", "Sender", "sender-token", "hi b", listener);
+
+        assertTrue(listener.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void serverErrorsAreRetried() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(429));
+        server.enqueue(new MockResponse().setBody(SUCCESS));
+        RecordingListener listener = new RecordingListener(1);
+
+        dispatcher.dispatch("token-a", "sender", "Sender", "sender-token", "hello", listener);
+
+        assertTrue(listener.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(3, server.getRequestCount());
+        assertEquals(1, listener.delivered.get());
+        assertNull(listener.error.get());
+    }
+
+    @Test
+    public void clientErrorsAreNotRetried() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(400));
+        RecordingListener listener = new RecordingListener(1);
+
+        dispatcher.dispatch("token-a", "sender", "Sender", "sender-token", "hello", listener);
+
+        assertTrue(listener.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+        assertEquals("Error: 400", listener.error.get());
+    }
+
+    @Test
+    public void retryDelayGrowsExponentially() {
+        assertEquals(10, dispatcher.retryDelayMillis(1));
+        assertEquals(20, dispatcher.retryDelayMillis(2));
+        assertEquals(40, dispatcher.retryDelayMillis(3));
+    }
+
+    private static String bodyOf(RecordedRequest request) throws Exception {
+        Buffer body = new Buffer();
+        body.writeAll(new GzipSource(request.getBody()));
+        return body.readUtf8();
+    }
+
+    private static class RecordingListener implements PushDispatcher.Listener {
+        final CountDownLatch latch;
+        final AtomicInteger delivered = new AtomicInteger();
+        final AtomicReference<String> error = new AtomicReference<>();
+
+        RecordingListener(int expected) {
+            latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onDelivered(String recipientToken, int messageCount) {
+            delivered.addAndGet(messageCount);
+            latch.countDown();
+        }
+
+        @Override
+        public void onFailed(String recipientToken, String error) {
+            this.error.set(error);
+            latch.countDown();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.sigma_chat_v2.benchmark;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+
+import kotlin.Unit;
+
+// Generates the app's baseline profile: ./gradlew :app:generateReleaseBaselineProfile on an API 33+
+// device or emulator writes it to app/src/release/generated/baselineProfiles. Regenerate after
+// changes to the startup path and commit the result.
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+
+    @Rule
+    public BaselineProfileRule baselineProfileRule = new BaselineProfileRule();
+
+    @BeforeClass
+    public static void seed() throws IOException {
+        Journeys.seedIfNeeded();
+    }
+
+    @Test
+    public void startup() {
+        baselineProfileRule.collect(Journeys.PACKAGE_NAME, scope -> {
+            scope.pressHome();
+            Journeys.startSignedIn(scope);
+            Journeys.scrollConversations(scope);
+            Journeys.openNewestChat(scope);
+            scope.getDevice().pressBack();
+            Journeys.scrollUsers(scope);
+            return Unit.INSTANCE;
+        });
+    }
+}
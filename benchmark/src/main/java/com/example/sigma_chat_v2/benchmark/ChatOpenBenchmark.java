@@ -0,0 +1,59 @@
+package com.example.sigma_chat_v2.benchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import kotlin.Unit;
+
+// Latency from tapping the newest conversation to its messages being on screen: ChatActivity.open
+// spans onCreate to the first history load, whether it came from the local cache or the server.
+// Needs an account, see Journeys.
+@RunWith(AndroidJUnit4.class)
+public class ChatOpenBenchmark {
+
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    @BeforeClass
+    public static void seed() throws IOException {
+        Journeys.seedIfNeeded();
+    }
+
+    @Test
+    public void openChat() {
+        benchmarkRule.measureRepeated(
+                Journeys.PACKAGE_NAME,
+                Arrays.asList(
+                        new TraceSectionMetric("ChatActivity.onCreate"),
+                        new TraceSectionMetric("ChatActivity.open"),
+                        new FrameTimingMetric()
+                ),
+                new CompilationMode.Partial(BaselineProfileMode.Require),
+                StartupMode.WARM,
+                ITERATIONS,
+                scope -> {
+                    Journeys.startSignedIn(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    Journeys.openNewestChat(scope);
+                    return Unit.INSTANCE;
+                }
+        );
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.sigma_chat_v2.benchmark;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Locale;
+
+// Replaces the contents of the Firestore emulator with a fixed data set through its REST API, so
+// every run scrolls and opens the same data: the benchmark account, USER_COUNT other users in the
+// directory, CONVERSATION_COUNT recent conversations, the newest holding MESSAGE_COUNT messages.
+// Field names mirror the app's Constants.
+final class EmulatorSeed {
+
+    static final String ACCOUNT_ID = "benchmarkAccount";
+    static final String ACCOUNT_EMAIL = "benchmark@sigma.chat";
+    static final String ACCOUNT_PASSWORD = "benchmark";
+    static final int USER_COUNT = 300;
+    static final int CONVERSATION_COUNT = 100;
+    static final int MESSAGE_COUNT = 300;
+
+    private static final String PROJECT_ID = "sigma-chat-v2";
+    private static final int PORT = 8080;
+    // The emulator's admin token, which bypasses security rules.
+    private static final String AUTHORIZATION = "Bearer owner";
+    private static final int MAX_WRITES_PER_COMMIT = 500;
+    private static final long MINUTE_MS = 60 * 1000;
+
+    private final String baseUrl;
+    private JSONArray writes = new JSONArray();
+
+    private EmulatorSeed(String host) {
+        baseUrl = "http://" + host + ":" + PORT;
+    }
+
+    // Blocking.
+    static void seed(String host) throws IOException {
+        EmulatorSeed seed = new EmulatorSeed(host);
+        try {
+            seed.request("DELETE", "/emulator/v1/projects/" + PROJECT_ID + "/databases/(default)/documents", null);
+            seed.writeAll(System.currentTimeMillis());
+        } catch (JSONException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void writeAll(long now) throws IOException, JSONException {
+        put("users/" + ACCOUNT_ID, new JSONObject()
+                .put("name", string("Benchmark Account"))
+                .put("email", string(ACCOUNT_EMAIL))
+                .put("password", string(ACCOUNT_PASSWORD)));
+        put("directory/" + ACCOUNT_ID, directoryEntry("Benchmark Account", ACCOUNT_EMAIL));
+        for (int i = 0; i < USER_COUNT; i++) {
+            String userId = userId(i);
+            String name = userName(i);
+            String email = userId.toLowerCase(Locale.ROOT) + "@sigma.chat";
+            put("users/" + userId, new JSONObject()
+                    .put("name", string(name))
+                    .put("email", string(email))
+                    .put("availability", integer(0)));
+            put("directory/" + userId, directoryEntry(name, email));
+        }
+        for (int i = 0; i < CONVERSATION_COUNT; i++) {
+            // user000 is the newest conversation, so it is the first row.
+            String userId = userId(i);
+            String conversationId = conversationId(ACCOUNT_ID, userId);
+            boolean sent = (i & 1) == 0;
+            put("conversations/" + conversationId, new JSONObject()
+                    .put("conversationId", string(conversationId))
+                    .put("participants", participants(ACCOUNT_ID, userId))
+                    .put("senderId", string(sent ? ACCOUNT_ID : userId))
+                    .put("receiverId", string(sent ? userId : ACCOUNT_ID))
+                    .put("senderName", string(sent ? "Benchmark Account" : userName(i)))
+                    .put("receiverName", string(sent ? userName(i) : "Benchmark Account"))
+                    .put("lastMessage", string("Last message in conversation " + i))
+                    .put("timestamp", timestamp(now - i * MINUTE_MS)));
+        }
+        String conversationId = conversationId(ACCOUNT_ID, userId(0));
+        for (int i = 0; i < MESSAGE_COUNT; i++) {
+            boolean sent = (i & 1) == 0;
+            put(String.format(Locale.ROOT, "chat/benchmark%04d", i), new JSONObject()
+                    .put("conversationId", string(conversationId))
+                    .put("senderId", string(sent ? ACCOUNT_ID : userId(0)))
+                    .put("receiverId", string(sent ? userId(0) : ACCOUNT_ID))
+                    .put("message", string(messageText(i)))
+                    .put("timestamp", timestamp(now - (MESSAGE_COUNT - i) * MINUTE_MS)));
+        }
+        commit();
+    }
+
+    private static String userId(int index) {
+        return String.format(Locale.ROOT, "user%03d", index);
+    }
+
+    private static String userName(int index) {
+        return String.format(Locale.ROOT, "User %03d", index);
+    }
+
+    // Varied lengths, so rows wrap to one, two or several lines like a real chat.
+    private static String messageText(int index) {
+        StringBuilder builder = new StringBuilder("Message ").append(index);
+        for (int i = 0; i < index % 7; i++) {
+            builder.append(" lorem ipsum dolor");
+        }
+        return builder.toString();
+    }
+
+    private static String conversationId(String firstUserId, String secondUserId) {
+        return firstUserId.compareTo(secondUserId) <= 0
+                ? firstUserId + "_" + secondUserId
+                : secondUserId + "_" + firstUserId;
+    }
+
+    private static JSONObject participants(String firstUserId, String secondUserId) throws JSONException {
+        boolean ordered = firstUserId.compareTo(secondUserId) <= 0;
+        return new JSONObject().put("arrayValue", new JSONObject().put("values", new JSONArray()
+                .put(string(ordered ? firstUserId : secondUserId))
+                .put(string(ordered ? secondUserId : firstUserId))));
+    }
+
+    private static JSONObject directoryEntry(String name, String email) throws JSONException {
+        return new JSONObject()
+                .put("name", string(name))
+                .put("nameLower", string(name.toLowerCase(Locale.ROOT)))
+                .put("email", string(email));
+    }
+
+    private static JSONObject string(String value) throws JSONException {
+        return new JSONObject().put("stringValue", value);
+    }
+
+    private static JSONObject integer(long value) throws JSONException {
+        return new JSONObject().put("integerValue", String.valueOf(value));
+    }
+
+    private static JSONObject timestamp(long millis) throws JSONException {
+        return new JSONObject().put("timestampValue", Instant.ofEpochMilli(millis).toString());
+    }
+
+    private void put(String path, JSONObject fields) throws IOException, JSONException {
+        writes.put(new JSONObject().put("update", new JSONObject()
+                .put("name", "projects/" + PROJECT_ID + "/databases/(default)/documents/" + path)
+                .put("fields", fields)));
+        if (writes.length() == MAX_WRITES_PER_COMMIT) {
+            commit();
+        }
+    }
+
+    private void commit() throws IOException, JSONException {
+        if (writes.length() == 0) {
+            return;
+        }
+        request("POST", "/v1/projects/" + PROJECT_ID + "/databases/(default)/documents:commit",
+                new JSONObject().put("writes", writes).toString());
+        writes = new JSONArray();
+    }
+
+    private void request(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        try {
+            connection.setRequestMethod(method);
+            connection.setRequestProperty("Authorization", AUTHORIZATION);
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream outputStream = connection.getOutputStream()) {
+                    outputStream.write(body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            int code = connection.getResponseCode();
+            if (code / 100 != 2) {
+                throw new IOException(method + " " + path + " failed with HTTP " + code);
+            }
+            try (InputStream inputStream = connection.getInputStream()) {
+                byte[] buffer = new byte[8192];
+                while (inputStream.read(buffer) >= 0) {
+                    // The response body is not needed.
+                }
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
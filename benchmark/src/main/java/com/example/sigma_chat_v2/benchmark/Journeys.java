@@ -0,0 +1,119 @@
+package com.example.sigma_chat_v2.benchmark;
+
+import android.os.Bundle;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import java.io.IOException;
+
+// User journeys shared by the profile generator and the benchmarks. Without an account the app only
+// ever shows the sign-in screen. Build both :app and :benchmark with
+// -PfirestoreEmulatorHost=10.0.2.2 and a running Firestore emulator to use the seeded account and
+// data; otherwise pass a real account as -Pandroid.testInstrumentationRunnerArguments.email=... and
+// .password=...
+final class Journeys {
+
+    static final String PACKAGE_NAME = "com.example.sigma_chat_v2";
+    private static final long TIMEOUT_MS = 10_000;
+
+    private static boolean seeded = false;
+
+    private Journeys() {
+    }
+
+    private static String emulatorHost() {
+        String host = InstrumentationRegistry.getArguments().getString("firestoreEmulatorHost");
+        return host == null || host.isEmpty() ? null : host;
+    }
+
+    // Once per run, before the first journey.
+    static synchronized void seedIfNeeded() throws IOException {
+        String host = emulatorHost();
+        if (host != null && !seeded) {
+            EmulatorSeed.seed(host);
+            seeded = true;
+        }
+    }
+
+    private static String[] account() {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        if (arguments.getString("email") != null && arguments.getString("password") != null) {
+            return new String[]{arguments.getString("email"), arguments.getString("password")};
+        }
+        if (emulatorHost() != null) {
+            return new String[]{EmulatorSeed.ACCOUNT_EMAIL, EmulatorSeed.ACCOUNT_PASSWORD};
+        }
+        return null;
+    }
+
+    static boolean hasAccount() {
+        return account() != null;
+    }
+
+    // Leaves the app on MainActivity, signing in first if it is on the sign-in screen.
+    static void signInIfNeeded(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        UiObject2 email = device.findObject(By.res(PACKAGE_NAME, "inputEmail"));
+        String[] account = account();
+        if (email == null || account == null) {
+            return;
+        }
+        email.setText(account[0]);
+        device.findObject(By.res(PACKAGE_NAME, "inputPassWord")).setText(account[1]);
+        device.findObject(By.res(PACKAGE_NAME, "buttonSignIn")).click();
+        device.wait(Until.hasObject(By.res(PACKAGE_NAME, "conversationsRecyclerView")), TIMEOUT_MS);
+    }
+
+    // Starts the app signed in, on MainActivity.
+    static void startSignedIn(MacrobenchmarkScope scope) {
+        scope.startActivityAndWait();
+        signInIfNeeded(scope);
+    }
+
+    // Waits for the recent conversations and flings through them, if there are any.
+    static void scrollConversations(MacrobenchmarkScope scope) {
+        fling(scope.getDevice(), "conversationsRecyclerView");
+    }
+
+    // From MainActivity: opens the user list and flings through it.
+    static void scrollUsers(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        UiObject2 newChat = device.wait(Until.findObject(By.res(PACKAGE_NAME, "fabNewChat")), TIMEOUT_MS);
+        if (newChat == null) {
+            return;
+        }
+        newChat.click();
+        fling(device, "userRecycleView");
+    }
+
+    // From MainActivity: opens the newest conversation and waits for its messages.
+    static void openNewestChat(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        UiObject2 list = device.wait(Until.findObject(By.res(PACKAGE_NAME, "conversationsRecyclerView")), TIMEOUT_MS);
+        if (list == null || list.getChildCount() == 0) {
+            return;
+        }
+        list.getChildren().get(0).click();
+        device.wait(Until.findObject(By.res(PACKAGE_NAME, "chatRecyclerView")), TIMEOUT_MS);
+        device.waitForIdle();
+    }
+
+    private static void fling(UiDevice device, String listId) {
+        UiObject2 list = device.wait(Until.findObject(By.res(PACKAGE_NAME, listId)), TIMEOUT_MS);
+        if (list == null) {
+            return;
+        }
+        // Keep the fling off the gesture navigation area.
+        list.setGestureMargin(device.getDisplayWidth() / 5);
+        list.fling(Direction.DOWN);
+        device.waitForIdle();
+        list.fling(Direction.UP);
+        device.waitForIdle();
+    }
+}
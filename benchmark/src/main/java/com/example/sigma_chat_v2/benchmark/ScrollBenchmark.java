@@ -0,0 +1,73 @@
+package com.example.sigma_chat_v2.benchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import kotlin.Unit;
+
+// Frame durations and jank while flinging the recent conversations in MainActivity and the user
+// list in UsersActivity, with the baseline profile installed. Needs an account, see Journeys.
+@RunWith(AndroidJUnit4.class)
+public class ScrollBenchmark {
+
+    private static final int ITERATIONS = 5;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    @BeforeClass
+    public static void seed() throws IOException {
+        Journeys.seedIfNeeded();
+    }
+
+    @Test
+    public void conversationListScroll() {
+        benchmarkRule.measureRepeated(
+                Journeys.PACKAGE_NAME,
+                Arrays.asList(new FrameTimingMetric(), new TraceSectionMetric("ListenerRegistry.parse")),
+                new CompilationMode.Partial(BaselineProfileMode.Require),
+                StartupMode.WARM,
+                ITERATIONS,
+                scope -> {
+                    Journeys.startSignedIn(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    Journeys.scrollConversations(scope);
+                    return Unit.INSTANCE;
+                }
+        );
+    }
+
+    @Test
+    public void userListScroll() {
+        benchmarkRule.measureRepeated(
+                Journeys.PACKAGE_NAME,
+                Arrays.asList(new FrameTimingMetric()),
+                new CompilationMode.Partial(BaselineProfileMode.Require),
+                StartupMode.WARM,
+                ITERATIONS,
+                scope -> {
+                    Journeys.startSignedIn(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    Journeys.scrollUsers(scope);
+                    return Unit.INSTANCE;
+                }
+        );
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.sigma_chat_v2.benchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import kotlin.Unit;
+
+// Cold and warm start time to initial display, plus the app's own startup trace sections, without
+// any AOT compilation and with the baseline profile installed; the gap between the two is what the
+// profile buys. Run with ./gradlew :benchmark:connectedBenchmarkReleaseAndroidTest.
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    @BeforeClass
+    public static void seed() throws IOException {
+        Journeys.seedIfNeeded();
+    }
+
+    @Test
+    public void coldStartupNoCompilation() {
+        startup(new CompilationMode.None(), StartupMode.COLD);
+    }
+
+    @Test
+    public void coldStartupBaselineProfile() {
+        startup(new CompilationMode.Partial(BaselineProfileMode.Require), StartupMode.COLD);
+    }
+
+    @Test
+    public void warmStartupBaselineProfile() {
+        startup(new CompilationMode.Partial(BaselineProfileMode.Require), StartupMode.WARM);
+    }
+
+    private void startup(CompilationMode compilationMode, StartupMode startupMode) {
+        benchmarkRule.measureRepeated(
+                Journeys.PACKAGE_NAME,
+                Arrays.asList(
+                        new StartupTimingMetric(),
+                        new TraceSectionMetric("SigmaChatApplication.onCreate"),
+                        new TraceSectionMetric("MainActivity.onCreate"),
+                        new TraceSectionMetric("MainActivity.deferredStartup")
+                ),
+                compilationMode,
+                startupMode,
+                ITERATIONS,
+                scope -> {
+                    // Sign in once, outside the measured part; later iterations start signed in.
+                    if (Journeys.hasAccount()) {
+                        Journeys.startSignedIn(scope);
+                        scope.pressHome();
+                        if (startupMode == StartupMode.COLD) {
+                            scope.killProcess();
+                        }
+                    }
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    return Unit.INSTANCE;
+                }
+        );
+    }
+}
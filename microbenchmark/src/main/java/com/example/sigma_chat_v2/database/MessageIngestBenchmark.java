@@ -0,0 +1,85 @@
+package com.example.sigma_chat_v2.database;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.sigma_chat_v2.models.ChatMessage;
+import com.example.sigma_chat_v2.utilities.ConversationId;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The local store's side of a message snapshot, in a throwaway database holding STORED_MESSAGES of
+// one chat: persisting a parsed live page, which upserts since the listener re-delivers messages,
+// and reading the latest page back, which is what a chat opened from cache renders first.
+@RunWith(AndroidJUnit4.class)
+public class MessageIngestBenchmark {
+
+    private static final String DATABASE_NAME = "ingest_benchmark.db";
+    private static final int STORED_MESSAGES = 5000;
+    private static final int PAGE_SIZE = 30;
+    private static final String ME = "Xq3vT9bLmW2pKc7RzN4a";
+    private static final String OTHER = "Hf8sJ1dYeU6gQo5MiV0t";
+    private static final long START = 1_700_000_000_000L;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private Context context;
+    private ChatDatabase chatDatabase;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        chatDatabase = new ChatDatabase(context, DATABASE_NAME);
+        List<ChatMessage> stored = new ArrayList<>();
+        for (int i = 0; i < STORED_MESSAGES; i++) {
+            stored.add(message(i));
+        }
+        chatDatabase.saveMessages(stored);
+    }
+
+    @After
+    public void tearDown() {
+        chatDatabase.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    private static ChatMessage message(int index) {
+        boolean sent = (index & 1) == 0;
+        return new ChatMessage("m" + index, sent ? ME : OTHER, sent ? OTHER : ME,
+                "message " + index + " with a few more words in it", START + index * 1000L, ME);
+    }
+
+    @Test
+    public void saveLivePage() {
+        List<ChatMessage> page = new ArrayList<>();
+        for (int i = STORED_MESSAGES - PAGE_SIZE; i < STORED_MESSAGES; i++) {
+            page.add(message(i));
+        }
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            chatDatabase.saveMessages(page);
+        }
+    }
+
+    @Test
+    public void readLatestPage() {
+        String conversationId = ConversationId.of(ME, OTHER);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            chatDatabase.getLatestMessages(conversationId, PAGE_SIZE, ME);
+        }
+    }
+}
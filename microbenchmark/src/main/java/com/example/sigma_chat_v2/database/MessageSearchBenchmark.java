@@ -0,0 +1,121 @@
+package com.example.sigma_chat_v2.database;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.sigma_chat_v2.models.ChatMessage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// The message search index in a throwaway database holding STORED_MESSAGES across CONVERSATIONS
+// chats, about what a heavy user accumulates: indexing a batch of new messages, and word, phrase
+// and prefix queries against the index.
+@RunWith(AndroidJUnit4.class)
+public class MessageSearchBenchmark {
+
+    private static final String DATABASE_NAME = "search_benchmark.db";
+    private static final int STORED_MESSAGES = 50_000;
+    private static final int BATCH_SIZE = 100;
+    private static final int CONVERSATIONS = 200;
+    private static final int RESULT_LIMIT = 50;
+    private static final String ME = "user0";
+    private static final long START = 1_700_000_000_000L;
+    private static final String[] WORDS = {
+            "halo", "besok", "kuliah", "makan", "siang", "kopi", "rapat", "jam", "tugas", "kirim",
+            "foto", "lagi", "dimana", "pulang", "malam", "ok", "sip", "nanti", "kabar", "baik",
+            "meeting", "deadline", "project", "review", "merge", "release", "weekend", "movie",
+            "ticket", "train", "airport", "dinner", "birthday", "gift", "music", "concert"
+    };
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private final Random random = new Random(42);
+    private Context context;
+    private ChatDatabase chatDatabase;
+    private int nextIndex = 0;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        chatDatabase = new ChatDatabase(context, DATABASE_NAME);
+        for (int stored = 0; stored < STORED_MESSAGES; stored += BATCH_SIZE * 10) {
+            chatDatabase.saveMessages(nextBatch(BATCH_SIZE * 10));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        chatDatabase.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    private List<ChatMessage> nextBatch(int size) {
+        List<ChatMessage> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++, nextIndex++) {
+            String otherUserId = "user" + (1 + random.nextInt(CONVERSATIONS));
+            boolean sent = random.nextBoolean();
+            batch.add(new ChatMessage("m" + nextIndex, sent ? ME : otherUserId, sent ? otherUserId : ME,
+                    sentence(), START + nextIndex * 1000L, ME));
+        }
+        return batch;
+    }
+
+    private String sentence() {
+        int length = 3 + random.nextInt(10);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void indexBatch() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            List<ChatMessage> batch = nextBatch(BATCH_SIZE);
+            state.resumeTiming();
+            chatDatabase.saveMessages(batch);
+        }
+    }
+
+    @Test
+    public void searchWord() {
+        search("deadline");
+    }
+
+    @Test
+    public void searchPhrase() {
+        search("rapat besok");
+    }
+
+    @Test
+    public void searchPrefix() {
+        search("mee");
+    }
+
+    private void search(String query) {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            chatDatabase.searchMessages(query, ME, RESULT_LIMIT);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.sigma_chat_v2.models;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+// Turning a parsed page of PAGE_SIZE messages into rows, with the model ChatMessage had before and
+// the compact one; the allocation counts reported next to the timings show what every row used to
+// carry. Ids are copied per message the way a Firestore parse hands out a fresh String every time.
+@RunWith(AndroidJUnit4.class)
+public class MessageModelBenchmark {
+
+    private static final int PAGE_SIZE = 30;
+    private static final String SENDER_ID = "Xq3vT9bLmW2pKc7RzN4a";
+    private static final String RECEIVER_ID = "Hf8sJ1dYeU6gQo5MiV0t";
+    private static final long START = 1_700_000_000_000L;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    // The shape ChatMessage had before: formatted label, Date and conversation fields on every row.
+    private static class LegacyChatMessage {
+        String senderId, receiverId, message, dateTime;
+        Date dateObject;
+        String conversionId, conversionName, conversionImage;
+    }
+
+    @Test
+    public void buildLegacyPage() {
+        SimpleDateFormat format = new SimpleDateFormat("MMMM dd, yyyy - hh:mm a", Locale.getDefault());
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            List<LegacyChatMessage> page = new ArrayList<>(PAGE_SIZE);
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                LegacyChatMessage chatMessage = new LegacyChatMessage();
+                boolean outgoing = (i & 1) == 0;
+                chatMessage.senderId = new String(outgoing ? SENDER_ID : RECEIVER_ID);
+                chatMessage.receiverId = new String(outgoing ? RECEIVER_ID : SENDER_ID);
+                chatMessage.message = "message " + i;
+                chatMessage.dateObject = new Date(START + i * 1000L);
+                chatMessage.dateTime = format.format(chatMessage.dateObject);
+                page.add(chatMessage);
+            }
+        }
+    }
+
+    @Test
+    public void buildCompactPage() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            List<ChatMessage> page = new ArrayList<>(PAGE_SIZE);
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                boolean outgoing = (i & 1) == 0;
+                page.add(new ChatMessage(
+                        "m" + i,
+                        new String(outgoing ? SENDER_ID : RECEIVER_ID),
+                        new String(outgoing ? RECEIVER_ID : SENDER_ID),
+                        "message " + i,
+                        START + i * 1000L,
+                        SENDER_ID
+                ));
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.sigma_chat_v2.utilities;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.util.Base64;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+// Decoding the avatar renditions AvatarStore produces, as AvatarCache does for every row that
+// misses its memory cache, next to the legacy full-size Base64 JPEG the variants replaced.
+@RunWith(AndroidJUnit4.class)
+public class AvatarDecodeBenchmark {
+
+    private static final int SOURCE_SIZE = 1024;
+    private static final int LEGACY_SIZE = 512;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private AvatarStore.AvatarUpload upload;
+    private String legacyImage;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        Bitmap source = photoLike(SOURCE_SIZE);
+        upload = AvatarStore.getInstance(context).prepare(source);
+        Bitmap legacy = Bitmap.createScaledBitmap(source, LEGACY_SIZE, LEGACY_SIZE, true);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        legacy.compress(Bitmap.CompressFormat.JPEG, 90, outputStream);
+        legacyImage = Base64.encodeToString(outputStream.toByteArray(), Base64.DEFAULT);
+        legacy.recycle();
+        source.recycle();
+    }
+
+    // A gradient under random discs: compresses about like a photo, unlike a flat color.
+    private static Bitmap photoLike(int size) {
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setShader(new LinearGradient(0, 0, size, size, Color.BLUE, Color.YELLOW, Shader.TileMode.CLAMP));
+        canvas.drawRect(0, 0, size, size, paint);
+        paint.setShader(null);
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            paint.setColor(random.nextInt() | 0xff000000);
+            canvas.drawCircle(random.nextInt(size), random.nextInt(size), 8 + random.nextInt(size / 8), paint);
+        }
+        return bitmap;
+    }
+
+    @Test
+    public void decodePlaceholder() {
+        // Decoded inline on the main thread while the real rendition loads.
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            byte[] bytes = Base64.decode(upload.placeholder, Base64.DEFAULT);
+            BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+        }
+    }
+
+    @Test
+    public void decodeThumbnail() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            BitmapFactory.decodeByteArray(upload.thumbnail, 0, upload.thumbnail.length);
+        }
+    }
+
+    @Test
+    public void decodeProfile() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            BitmapFactory.decodeByteArray(upload.profile, 0, upload.profile.length);
+        }
+    }
+
+    @Test
+    public void decodeLegacyBase64() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            byte[] bytes = Base64.decode(legacyImage, Base64.DEFAULT);
+            BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.sigma_chat_v2.utilities;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.sigma_chat_v2.models.ConversationSummary;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Applying conversation listener snapshots to the recent conversations of MainActivity: a new
+// message moving the oldest conversation to the top, and a re-attach delivering every conversation
+// again unchanged.
+@RunWith(AndroidJUnit4.class)
+public class ConversationIndexBenchmark {
+
+    private static final int CONVERSATION_COUNT = 200;
+    private static final String ME = "Xq3vT9bLmW2pKc7RzN4a";
+    private static final long START = 1_700_000_000_000L;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private ConversationIndex conversations;
+    private List<ConversationSummary> snapshot;
+
+    @Before
+    public void setUp() {
+        snapshot = new ArrayList<>();
+        for (int i = 0; i < CONVERSATION_COUNT; i++) {
+            snapshot.add(conversation("user" + i, "message " + i, START + i * 1000L));
+        }
+        conversations = new ConversationIndex();
+        conversations.replaceAll(snapshot);
+    }
+
+    private static ConversationSummary conversation(String otherUserId, String lastMessage, long timestamp) {
+        return new ConversationSummary(ConversationId.of(ME, otherUserId), ME, otherUserId, otherUserId,
+                otherUserId, null, null, lastMessage, timestamp);
+    }
+
+    @Test
+    public void newMessageMovesToTop() {
+        long timestamp = START + CONVERSATION_COUNT * 1000L;
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            ConversationSummary oldest = conversations.get(conversations.size() - 1);
+            conversations.upsert(conversation(oldest.otherUserId, "new message", timestamp++));
+        }
+    }
+
+    @Test
+    public void reattachUnchanged() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            conversations.replaceAll(snapshot);
+        }
+    }
+}
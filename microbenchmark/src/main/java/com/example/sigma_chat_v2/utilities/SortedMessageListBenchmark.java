@@ -0,0 +1,118 @@
+package com.example.sigma_chat_v2.utilities;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.sigma_chat_v2.models.ChatMessage;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+// Applying messages to an open chat of WINDOW_SIZE messages, the way MessagePager does: a live
+// message at the end, a late one in the middle, an older page scrolled in at the top, and a
+// re-attached live window that mostly overlaps what is already there.
+@RunWith(AndroidJUnit4.class)
+public class SortedMessageListBenchmark {
+
+    private static final int WINDOW_SIZE = 1000;
+    private static final int PAGE_SIZE = 30;
+    private static final String ME = "Xq3vT9bLmW2pKc7RzN4a";
+    private static final String OTHER = "Hf8sJ1dYeU6gQo5MiV0t";
+    private static final long START = 1_700_000_000_000L;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private SortedMessageList messages;
+    private List<ChatMessage> window;
+
+    @Before
+    public void setUp() {
+        window = new ArrayList<>();
+        for (int i = 0; i < WINDOW_SIZE; i++) {
+            window.add(message(PAGE_SIZE + i));
+        }
+        messages = new SortedMessageList(new ArrayList<>());
+        messages.insertAll(window);
+    }
+
+    private static ChatMessage message(int index) {
+        boolean sent = (index & 1) == 0;
+        return new ChatMessage("m" + index, sent ? ME : OTHER, sent ? OTHER : ME,
+                "message " + index, START + index * 1000L, ME);
+    }
+
+    @Test
+    public void insertLiveMessage() {
+        ChatMessage live = message(PAGE_SIZE + WINDOW_SIZE);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            messages.insert(live);
+            state.pauseTiming();
+            messages.remove(live.messageId);
+            state.resumeTiming();
+        }
+    }
+
+    @Test
+    public void insertLateMessage() {
+        ChatMessage late = new ChatMessage("late", OTHER, ME, "late",
+                START + (PAGE_SIZE + WINDOW_SIZE / 2) * 1000L + 500, ME);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            messages.insert(late);
+            state.pauseTiming();
+            messages.remove(late.messageId);
+            state.resumeTiming();
+        }
+    }
+
+    @Test
+    public void prependOlderPage() {
+        List<ChatMessage> page = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            page.add(message(i));
+        }
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            messages.insertAll(page);
+            state.pauseTiming();
+            messages.removeRange(0, PAGE_SIZE);
+            state.resumeTiming();
+        }
+    }
+
+    @Test
+    public void mergeLiveWindow() {
+        // The last page again, as re-parsed instances: every message takes the update path.
+        List<ChatMessage> liveWindow = new ArrayList<>();
+        for (int i = WINDOW_SIZE - PAGE_SIZE; i < WINDOW_SIZE; i++) {
+            liveWindow.add(message(PAGE_SIZE + i));
+        }
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            messages.insertAll(liveWindow);
+        }
+    }
+
+    @Test
+    public void sortWindow() {
+        List<ChatMessage> shuffled = new ArrayList<>(window);
+        Collections.shuffle(shuffled, new Random(42));
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            List<ChatMessage> copy = new ArrayList<>(shuffled);
+            state.resumeTiming();
+            Collections.sort(copy, SortedMessageList.ORDER);
+        }
+    }
+}
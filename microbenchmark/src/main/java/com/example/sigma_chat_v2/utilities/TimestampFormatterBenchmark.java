@@ -0,0 +1,52 @@
+package com.example.sigma_chat_v2.utilities;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+// Row timestamp labels: a minute that is already memoized, a stream of distinct minutes that keeps
+// missing the memo, and the relative labels of recent rows.
+@RunWith(AndroidJUnit4.class)
+public class TimestampFormatterBenchmark {
+
+    private static final long START = 1_700_000_000_000L;
+    // More distinct minutes than the memo holds.
+    private static final int MINUTES = 4096;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void formatMemoized() {
+        TimestampFormatter.format(START);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            TimestampFormatter.format(START);
+        }
+    }
+
+    @Test
+    public void formatDistinctMinutes() {
+        int minute = 0;
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            TimestampFormatter.format(START + minute * TimestampFormatter.MINUTE_MS);
+            minute = (minute + 1) % MINUTES;
+        }
+    }
+
+    @Test
+    public void formatRelative() {
+        long now = START + TimestampFormatter.RELATIVE_WINDOW_MS;
+        int minute = 0;
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            TimestampFormatter.formatRelative(START + minute * TimestampFormatter.MINUTE_MS, now);
+            minute = (minute + 1) % 60;
+        }
+    }
+}